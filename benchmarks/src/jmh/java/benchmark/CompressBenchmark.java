@@ -0,0 +1,88 @@
+package benchmark;
+
+import model.QuadTreeWriter;
+import model.RITQTNode;
+import model.TokenReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ptui.RITCompress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the compression side: reading an uncompressed image,
+ * building its quadtree and writing the quadtree out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompressBenchmark
+{
+    /** The image to compress, see Images */
+    @Param({"earth256x256", "incline256x256", "redsox512x512", "ritlogo128x128", "scotty256x256",
+            "simple16x16", "simple1x1", "simple256x256", "simple2x2", "simple32x32", "simple4x4",
+            "simple8x8-2", "simple8x8", "smileyface256x256", "stopsign256x256",
+            "solid-1024", "solid-2048", "solid-4096", "gradient-1024", "gradient-2048", "gradient-4096",
+            "noise-1024", "noise-2048", "noise-4096"})
+    public String image;
+
+    /** Bytes of the uncompressed .txt file */
+    private byte[] text;
+
+    /** The 2D image array */
+    private int[][] pixels;
+
+    /** The image's quadtree */
+    private RITQTNode root;
+
+    /** Reused buffer the quadtree is written to, so disk I/O isn't measured */
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        text = Images.uncompressedFile(image);
+        pixels = Images.image(image);
+        root = RITQTNode.compress(pixels, pixels.length);
+        output = new ByteArrayOutputStream();
+    }
+
+    @Benchmark
+    public int[] readFile()
+    {
+        return RITCompress.readFile(new TokenReader(new ByteArrayInputStream(text)));
+    }
+
+    @Benchmark
+    public RITQTNode compress()
+    {
+        return RITQTNode.compress(pixels, pixels.length);
+    }
+
+    @Benchmark
+    public String treeToString()
+    {
+        return root.toString();
+    }
+
+    @Benchmark
+    public int writeQuadtree() throws IOException
+    {
+        //Same tokens as RITCompress.writeQuadtree, without the file
+        output.reset();
+        QuadTreeWriter writer = new QuadTreeWriter(output);
+        writer.writeToken(pixels.length * pixels.length);
+        writer.write(root);
+        writer.flush();
+        return writer.getTokenCount();
+    }
+}
@@ -0,0 +1,147 @@
+package benchmark;
+
+import model.QuadTreeWriter;
+import model.RITQTNode;
+import model.TokenReader;
+import ptui.RITCompress;
+import ptui.RITCompressScaling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Loads the benchmark images by name.
+ *
+ * A name is either an image of the images/ corpus, such as earth256x256,
+ * or a synthetic image written as kind-side, where kind is solid, gradient
+ * or noise, such as noise-2048. The corpus directory is read from the
+ * rit.images system property.
+ */
+final class Images
+{
+    /** The images/ corpus directory */
+    private static final File DIRECTORY = new File(System.getProperty("rit.images", "images"));
+
+    /** Seed of the synthetic noise images */
+    private static final long NOISE_SEED = 42;
+
+    private Images() {}
+
+    /**
+     * Checks whether or not a name is a synthetic image.
+     *
+     * @param name the image name
+     * @return true if the image is generated
+     */
+    private static boolean isSynthetic(String name)
+    {
+        return name.startsWith("solid-") || name.startsWith("gradient-") || name.startsWith("noise-");
+    }
+
+    /**
+     * Generates a synthetic image.
+     *
+     * @param name the image name, kind-side
+     * @return the 2D image array
+     */
+    private static int[][] generate(String name)
+    {
+        int dash = name.indexOf('-');
+        int sideLength = Integer.parseInt(name.substring(dash + 1));
+        switch(name.substring(0, dash))
+        {
+            case "gradient":
+                return RITCompressScaling.gradient(sideLength);
+            case "noise":
+                return RITCompressScaling.noise(sideLength, NOISE_SEED);
+            default:
+                int[][] image = new int[sideLength][sideLength];
+                for(int[] row : image)
+                    Arrays.fill(row, 128);
+                return image;
+        }
+    }
+
+    /**
+     * Reads a whole file of the corpus.
+     *
+     * @param folder the corpus folder, compressed or uncompressed
+     * @param fileName the file's name
+     * @return the file's bytes
+     */
+    private static byte[] read(String folder, String fileName)
+    {
+        try
+        {
+            return Files.readAllBytes(new File(new File(DIRECTORY, folder), fileName).toPath());
+        }
+        catch(IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Get the text of an uncompressed image, one pixel value per line.
+     *
+     * @param name the image name
+     * @return the bytes of the .txt file
+     */
+    static byte[] uncompressedFile(String name)
+    {
+        if(!isSynthetic(name))
+            return read("uncompressed", name + ".txt");
+
+        int[][] image = generate(name);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(QuadTreeWriter writer = new QuadTreeWriter(bytes))
+        {
+            for(int[] row : image)
+            {
+                for(int pixel : row)
+                    writer.writeToken(pixel);
+            }
+        }
+        catch(IOException e) { throw new UncheckedIOException(e); }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Get the text of a compressed image, the size header then the
+     * quadtree in preorder.
+     *
+     * @param name the image name
+     * @return the bytes of the .rit file
+     */
+    static byte[] compressedFile(String name)
+    {
+        if(!isSynthetic(name))
+            return read("compressed", name + ".rit");
+
+        int[][] image = generate(name);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(QuadTreeWriter writer = new QuadTreeWriter(bytes))
+        {
+            writer.writeToken(image.length * image.length);
+            writer.write(RITQTNode.compress(image, image.length));
+        }
+        catch(IOException e) { throw new UncheckedIOException(e); }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Loads an uncompressed image.
+     *
+     * @param name the image name
+     * @return the 2D image array
+     */
+    static int[][] image(String name)
+    {
+        if(isSynthetic(name))
+            return generate(name);
+        TokenReader reader = new TokenReader(new ByteArrayInputStream(uncompressedFile(name)));
+        return RITCompress.listToImage(RITCompress.readFile(reader));
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import model.RITQTNode;
+import model.TokenCursor;
+import model.TokenReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ptui.RITUncompress;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the decompression side: reading a .rit file,
+ * parsing its tokens into a quadtree and filling the image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UncompressBenchmark
+{
+    /** The image to decompress, see Images */
+    @Param({"earth256x256", "incline256x256", "redsox512x512", "ritlogo128x128", "scotty256x256",
+            "simple16x16", "simple1x1", "simple256x256", "simple2x2", "simple32x32", "simple4x4",
+            "simple8x8-2", "simple8x8", "smileyface256x256", "stopsign256x256",
+            "solid-1024", "solid-2048", "solid-4096", "gradient-1024", "gradient-2048", "gradient-4096",
+            "noise-1024", "noise-2048", "noise-4096"})
+    public String image;
+
+    /** Bytes of the .rit file */
+    private byte[] text;
+
+    /** The side length of the image */
+    private int sideLength;
+
+    /** The quadtree tokens after the size header */
+    private int[] tokens;
+
+    /** The image's quadtree */
+    private RITQTNode root;
+
+    @Setup
+    public void setUp()
+    {
+        text = Images.compressedFile(image);
+        TokenReader reader = new TokenReader(new ByteArrayInputStream(text));
+        sideLength = (int) Math.sqrt(reader.nextInt());
+        tokens = reader.readAll();
+        root = RITUncompress.parse(new TokenCursor(tokens));
+    }
+
+    @Benchmark
+    public int[] readFile()
+    {
+        TokenReader reader = new TokenReader(new ByteArrayInputStream(text));
+        reader.nextInt();
+        return RITUncompress.readFile(reader);
+    }
+
+    @Benchmark
+    public RITQTNode parse()
+    {
+        return RITUncompress.parse(new TokenCursor(tokens));
+    }
+
+    @Benchmark
+    public int[][] uncompress()
+    {
+        return root.uncompress(new int[sideLength][sideLength], sideLength);
+    }
+}
@@ -0,0 +1,107 @@
+package gui;
+
+import javafx.application.Platform;
+import javafx.scene.text.Text;
+
+import java.util.Arrays;
+
+/**
+ * The last few lines written to the application console.
+ *
+ * Lines are kept in a ring buffer, so appending overwrites the oldest
+ * line instead of copying the whole log. The Text showing the log is
+ * redrawn at most once per pulse however many lines were appended, and
+ * always holds at most capacity lines.
+ *
+ * Only used from the JavaFX application thread.
+ */
+class ConsoleLog
+{
+    /** Lines the console always reserves room for */
+    private static final int MIN_LINES = 5;
+
+    /** The text showing the log */
+    private final Text view;
+
+    /** The lines, oldest first starting at index start */
+    private final String[] lines;
+
+    /** Index of the oldest line */
+    private int start = 0;
+
+    /** Number of lines kept */
+    private int size = 0;
+
+    /** Whether or not a redraw is already scheduled */
+    private boolean redrawQueued = false;
+
+    /**
+     * Construct an empty log.
+     *
+     * @param view the text to show the log in
+     * @param capacity number of lines kept
+     */
+    ConsoleLog(Text view, int capacity)
+    {
+        this.view = view;
+        this.lines = new String[Math.max(capacity, 1)];
+        redraw();
+    }
+
+    /**
+     * Appends a line, dropping the oldest one when the log is full.
+     *
+     * @param line the line to append
+     */
+    void append(String line)
+    {
+        if(size == lines.length)
+        {
+            lines[start] = line;
+            start = (start + 1) % lines.length;
+        }
+        else
+            lines[(start + size++) % lines.length] = line;
+        queueRedraw();
+    }
+
+    /**
+     * Removes every line.
+     */
+    void clear()
+    {
+        Arrays.fill(lines, null);
+        start = 0;
+        size = 0;
+        queueRedraw();
+    }
+
+    /**
+     * Schedules a redraw for the next pulse unless one is already scheduled.
+     */
+    private void queueRedraw()
+    {
+        if(redrawQueued)
+            return;
+        redrawQueued = true;
+        Platform.runLater(() ->
+                {
+                    redrawQueued = false;
+                    redraw();
+                }
+        );
+    }
+
+    /**
+     * Shows the kept lines, padded to MIN_LINES.
+     */
+    private void redraw()
+    {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < size; i++)
+            builder.append(lines[(start + i) % lines.length]).append('\n');
+        for(int i = size; i < MIN_LINES; i++)
+            builder.append('\n');
+        view.setText(builder.toString());
+    }
+}
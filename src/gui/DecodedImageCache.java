@@ -0,0 +1,237 @@
+package gui;
+
+import model.CompressedImage;
+import model.QuadTreeDag;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The images the GUI decoded last, so revisiting one skips reading it.
+ *
+ * Entries are keyed by a file's canonical path and remember its size and
+ * modification time, so a file that changed on disk is read again and
+ * replaces its old entry. Values are raw pixel arrays (int[]), level-order
+ * decoded pixels (byte[]) or parsed quadtrees (CompressedImage), and are
+ * shared with callers, which must not modify them. The cache holds at
+ * most a byte budget of values, estimated from their sizes, and evicts
+ * the least recently used ones to make room.
+ *
+ * Used from the worker and the application threads, so every method
+ * that touches the entries is synchronized. Values are loaded outside
+ * the lock.
+ */
+class DecodedImageCache
+{
+    /** Estimated bytes per quadtree node: an object header, a value and four references */
+    private static final long NODE_BYTES = 32;
+
+    /** Estimated bytes per array header */
+    private static final long ARRAY_BYTES = 16;
+
+    /**
+     * Reads a file's value when it isn't cached.
+     *
+     * @param <V> the type of the value
+     */
+    interface Loader<V>
+    {
+        /**
+         * Reads the value.
+         *
+         * @return the value
+         * @throws IOException if the file cannot be read
+         */
+        V load() throws IOException;
+    }
+
+    /**
+     * A cached value and its estimated size.
+     */
+    private static class Entry
+    {
+        /** The file's size and modification time when the value was read */
+        private final long length, modified;
+
+        /** The value */
+        private final Object value;
+
+        /** The value's estimated size in bytes */
+        private final long bytes;
+
+        /**
+         * Construct an entry.
+         *
+         * @param length the file's size when the value was read
+         * @param modified the file's modification time when the value was read
+         * @param value the value
+         * @param bytes the value's estimated size in bytes
+         */
+        Entry(long length, long modified, Object value, long bytes)
+        {
+            this.length = length;
+            this.modified = modified;
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Entries by canonical path, from least to most recently used */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /** Most bytes of values kept */
+    private final long budget;
+
+    /** Bytes of values kept */
+    private long used = 0;
+
+    /** Lookups served from the cache, lookups that weren't, and entries evicted */
+    private long hits = 0, misses = 0, evictions = 0;
+
+    /**
+     * Construct an empty cache.
+     *
+     * @param budget most bytes of values kept
+     */
+    DecodedImageCache(long budget)
+    {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets a file's value, reading and caching it if it isn't cached as
+     * the requested type.
+     *
+     * @param file the file the value is read from
+     * @param type the type of the value
+     * @param loader reads the value on a miss
+     * @param <V> the type of the value
+     * @return the value
+     * @throws IOException if the value isn't cached and cannot be read
+     */
+    <V> V get(File file, Class<V> type, Loader<V> loader) throws IOException
+    {
+        //Size and time are taken before reading, so a change during the read is seen next time
+        String path = file.getCanonicalPath();
+        long length = file.length();
+        long modified = file.lastModified();
+        V cached = peek(path, length, modified, type);
+        if(cached != null)
+            return cached;
+
+        V value = loader.load();
+        put(path, new Entry(length, modified, value, sizeOf(value)));
+        return value;
+    }
+
+    /**
+     * Gets a file's value if it is cached as the requested type.
+     *
+     * @param file the file the value was read from
+     * @param type the type of the value
+     * @param <V> the type of the value
+     * @return the value, or null if it isn't cached
+     * @throws IOException if the canonical path cannot be found
+     */
+    <V> V peek(File file, Class<V> type) throws IOException
+    {
+        return peek(file.getCanonicalPath(), file.length(), file.lastModified(), type);
+    }
+
+    /**
+     * Checks whether or not a file's value is cached as the requested
+     * type, without counting a hit or miss.
+     *
+     * @param file the file the value was read from
+     * @param type the type of the value
+     * @return true if get would find the value
+     * @throws IOException if the canonical path cannot be found
+     */
+    synchronized boolean contains(File file, Class<?> type) throws IOException
+    {
+        Entry entry = entries.get(file.getCanonicalPath());
+        return entry != null && entry.length == file.length() && entry.modified == file.lastModified()
+                && type.isInstance(entry.value);
+    }
+
+    /**
+     * Looks up a value, counting the hit or miss.
+     *
+     * @param path the file's canonical path
+     * @param length the file's size now
+     * @param modified the file's modification time now
+     * @param type the type of the value
+     * @param <V> the type of the value
+     * @return the value, or null if it isn't cached or the file changed
+     */
+    private synchronized <V> V peek(String path, long length, long modified, Class<V> type)
+    {
+        Entry entry = entries.get(path);
+        if(entry != null && entry.length == length && entry.modified == modified && type.isInstance(entry.value))
+        {
+            hits++;
+            return type.cast(entry.value);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches a value in place of the file's old one, evicting the least
+     * recently used ones until it fits. Values larger than the whole
+     * budget aren't cached.
+     *
+     * @param path the file's canonical path
+     * @param entry the value and the file's size and time
+     */
+    private synchronized void put(String path, Entry entry)
+    {
+        Entry replaced = entries.remove(path);
+        if(replaced != null)
+            used -= replaced.bytes;
+        if(entry.bytes > budget)
+            return;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while(used + entry.bytes > budget && eldest.hasNext())
+        {
+            used -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(path, entry);
+        used += entry.bytes;
+    }
+
+    /**
+     * Estimates the bytes a value takes.
+     *
+     * @param value a pixel array or a parsed quadtree
+     * @return its estimated size in bytes
+     */
+    private static long sizeOf(Object value)
+    {
+        if(value instanceof int[])
+            return ARRAY_BYTES + 4L * ((int[]) value).length;
+        if(value instanceof byte[])
+            return ARRAY_BYTES + ((byte[]) value).length;
+        if(value instanceof CompressedImage)
+            return NODE_BYTES * QuadTreeDag.countNodes(((CompressedImage) value).getRoot());
+        throw new IllegalArgumentException("Cannot cache a " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * Describes the cache's counters and how full it is.
+     *
+     * @return a line for the console
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("Cache: %d hits, %d misses, %d evictions, %d images, %.1f of %.1f MB",
+                hits, misses, evictions, entries.size(), used / 1e6, budget / 1e6);
+    }
+}
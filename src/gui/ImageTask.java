@@ -0,0 +1,81 @@
+package gui;
+
+import javafx.concurrent.Task;
+import model.TokenReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A file operation run off the JavaFX application thread.
+ *
+ * Input read through open reports its progress as the bytes of tokens
+ * consumed, filling the first READ_SHARE of the progress bar, and stops
+ * with an InterruptedIOException once the task is cancelled. The steps
+ * after reading (building, writing, drawing) mark the rest with step.
+ *
+ * @param <V> the result handed back to the application thread
+ */
+abstract class ImageTask<V> extends Task<V>
+{
+    /** Share of the progress bar filled while reading the input */
+    private static final double READ_SHARE = 0.8;
+
+    /**
+     * Opens a token reader whose reads drive this task's progress.
+     *
+     * @param file the file to read from
+     * @return the token reader
+     * @throws FileNotFoundException if the file cannot be found
+     */
+    protected TokenReader open(File file) throws FileNotFoundException
+    {
+        double length = Math.max(file.length(), 1);
+        return new TokenReader(new FilterInputStream(new FileInputStream(file))
+        {
+            /** Bytes read so far */
+            private long count = 0;
+
+            @Override
+            public int read() throws IOException
+            {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                //Error Check: Task was cancelled while reading
+                if(isCancelled())
+                    throw new InterruptedIOException("Cancelled while reading " + file.getName());
+
+                int read = super.read(b, off, len);
+                if(read > 0)
+                {
+                    count += read;
+                    updateProgress(READ_SHARE * Math.min(count, length), length);
+                }
+                return read;
+            }
+        });
+    }
+
+    /**
+     * Marks a step after reading as done, stopping if the task was cancelled.
+     *
+     * @param fraction share of the work after reading done once the step ends, 0 to 1
+     * @throws CancellationException if the task was cancelled
+     */
+    protected void step(double fraction)
+    {
+        if(isCancelled())
+            throw new CancellationException();
+        updateProgress(READ_SHARE + (1 - READ_SHARE) * fraction, 1);
+    }
+}
@@ -1,25 +1,42 @@
 package gui;
 
 import javafx.application.Application;
+import javafx.concurrent.Task;
 import javafx.geometry.Orientation;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Separator;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import model.CompactQuadTree;
+import model.CompressedImage;
+import model.LodQuadTree;
+import model.PhaseStats;
+import model.PredictiveCoder;
+import model.QuadTreeDag;
+import model.QuadTreeSummary;
+import model.QuadTreeWriter;
+import model.RITBFile;
+import model.RITCFile;
+import model.RITFormat;
 import model.RITQTNode;
+import model.TokenReader;
 import ptui.RITCompress;
-import ptui.RITUncompress;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class RITGUI extends Application
 {
@@ -38,15 +55,330 @@ public class RITGUI extends Application
     /** Text object containing console output */
     private Text consoleOutput = new Text("");
 
+    /** Number of lines the console keeps */
+    private static final int CONSOLE_LINES = 12;
+
+    /** The last lines of console output, shown in consoleOutput */
+    private ConsoleLog console = new ConsoleLog(consoleOutput, CONSOLE_LINES);
+
+    /** Whether or not whole quadtrees are written to the console instead of their summary */
+    private boolean verbose = false;
+
+    /** Whether or not each job's phase timings are written to the console */
+    private boolean stats = false;
+
+    /** Default budget of the decoded image cache in megabytes, changed with --cache-mb=N */
+    private static final long DEFAULT_CACHE_MB = 256;
+
+    /** Images decoded by earlier jobs, set up in start */
+    private DecodedImageCache cache = new DecodedImageCache(DEFAULT_CACHE_MB * 1000000);
+
+    /** Side length of the canvas that compressed and raw images are zoomed and panned in */
+    private static final int VIEWPORT = 512;
+
     /** Canvas containing displayed image */
-    private Canvas canvas = new Canvas(512, 512);
+    private Canvas canvas = new Canvas(VIEWPORT, VIEWPORT);
+
+    /** Zooms and pans the image drawn on the canvas */
+    private ZoomView zoom = new ZoomView(canvas);
+
+    /** Progress of the running job */
+    private ProgressBar progress = new ProgressBar(0);
+
+    /** Jobs that are running or queued, oldest first */
+    private final List<Task<?>> jobs = new ArrayList<Task<?>>();
+
+    /** Runs the jobs one at a time, off the application thread */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor((job) ->
+            {
+                Thread worker = new Thread(job, "ritgui-worker");
+                worker.setDaemon(true);
+                return worker;
+            }
+    );
 
     /**
      * Adds line to application console
      */
     public void outputLine(String input)
     {
-        consoleOutput.setText(consoleOutput.getText() + input + "\n");
+        console.append(input);
+    }
+
+    /**
+     * Adds lines to application console
+     *
+     * @param lines the lines to add, in order
+     */
+    public void outputLines(List<String> lines)
+    {
+        for(String line : lines)
+            outputLine(line);
+    }
+
+    /**
+     * Begins a job's read phase, named "cached" when the value will come
+     * from the cache instead of the file.
+     *
+     * @param timings the job's phase timings
+     * @param file the file to read
+     * @param type the type of the file's cached value
+     * @return the phase
+     * @throws IOException if the canonical path cannot be found
+     */
+    private PhaseStats.Phase beginRead(PhaseStats timings, File file, Class<?> type) throws IOException
+    {
+        return timings.begin(cache.contains(file, type) ? "cached" : "read");
+    }
+
+    /**
+     * Gets an uncompressed image's pixels from the cache, reading them
+     * through a job's progress-reporting reader on a miss, and times it.
+     *
+     * @param job the job reading the file
+     * @param file the uncompressed image file
+     * @param timings the job's phase timings
+     * @return the pixel values
+     * @throws IOException if the file cannot be read
+     */
+    private int[] readPixels(ImageTask<?> job, File file, PhaseStats timings) throws IOException
+    {
+        PhaseStats.Phase phase = beginRead(timings, file, int[].class);
+        long[] bytesIn = new long[1];
+        int[] pixels = cache.get(file, int[].class, () ->
+                {
+                    try(TokenReader fileReader = job.open(file))
+                    {
+                        int[] values = RITCompress.readImage(fileReader);
+                        bytesIn[0] = fileReader.position();
+                        return values;
+                    }
+                }
+        );
+        phase.end(bytesIn[0], 0, pixels.length, 0);
+        return pixels;
+    }
+
+    /**
+     * Gets a level-order file's decoded pixels from the cache, decoding
+     * them through a job's progress-reporting reader on a miss, and times it.
+     *
+     * @param job the job reading the file
+     * @param file the level-order file
+     * @param timings the job's phase timings
+     * @return the pixels, row by row, one byte each
+     * @throws IOException if the file cannot be read
+     */
+    private byte[] readProgressive(ImageTask<?> job, File file, PhaseStats timings) throws IOException
+    {
+        PhaseStats.Phase phase = beginRead(timings, file, byte[].class);
+        long[] read = new long[2];
+        byte[] pixels = cache.get(file, byte[].class, () ->
+                {
+                    try(TokenReader fileReader = job.open(file))
+                    {
+                        byte[] values = CompressedImage.readProgressive(fileReader);
+                        read[0] = fileReader.position();
+                        read[1] = fileReader.getTokenCount();
+                        return values;
+                    }
+                }
+        );
+        phase.end(read[0], 0, read[1], Math.max(read[1] - 1, 0));
+        return pixels;
+    }
+
+    /**
+     * Gets a compressed image's quadtree from the cache, reading it on a
+     * miss, and times it. The token layouts are read through a job's
+     * progress-reporting reader; packed and Huffman coded files are read whole.
+     *
+     * @param job the job reading the file
+     * @param file the compressed file
+     * @param timings the job's phase timings
+     * @return the image's side length and quadtree
+     * @throws IOException if the file cannot be read
+     */
+    private CompressedImage readCompressed(ImageTask<?> job, File file, PhaseStats timings) throws IOException
+    {
+        PhaseStats.Phase phase = beginRead(timings, file, CompressedImage.class);
+        long[] read = new long[2];
+        CompressedImage image = cache.get(file, CompressedImage.class, () ->
+                {
+                    if(!CompressedImage.isTokenLayout(file))
+                    {
+                        read[0] = file.length();
+                        return CompressedImage.read(file);
+                    }
+                    try(TokenReader fileReader = job.open(file))
+                    {
+                        CompressedImage values = CompressedImage.read(fileReader, RITFormat.forFile(file));
+                        read[0] = fileReader.position();
+                        read[1] = fileReader.getTokenCount();
+                        return values;
+                    }
+                }
+        );
+        phase.end(read[0], 0, read[1], 0);
+        return image;
+    }
+
+    /**
+     * Creates a job's output file, refusing to replace one that is already
+     * there. Problems are reported by exception, so the job fails instead
+     * of the application exiting.
+     *
+     * @param file the output file
+     * @param kind what the file holds, for the error message
+     * @return a token writer over the new file
+     * @throws IOException if the file is already there or cannot be created
+     */
+    private static QuadTreeWriter createOutput(File file, String kind) throws IOException
+    {
+        //Error Check: Output file is already there
+        if(!file.createNewFile())
+            throw new IOException(kind + " file already exists!");
+        return new QuadTreeWriter(new FileOutputStream(file));
+    }
+
+    /**
+     * Writes a compressed image to a job's output file in the layout its
+     * extension names, after the image size header for the token layouts.
+     *
+     * @param root the quadtree to write
+     * @param sideLength the side length of the image
+     * @param file the output file
+     * @return number of quadtree values written
+     * @throws IOException if the file is already there, cannot be written or has no grayscale layout
+     */
+    private static int writeCompressed(RITQTNode root, int sideLength, File file) throws IOException
+    {
+        RITFormat format = RITFormat.forFile(file);
+
+        //Error Check: A grayscale image has no channels to write
+        if(format == RITFormat.COLOR)
+            throw new IOException("Grayscale images cannot be written as color files!");
+
+        //Binary files are written whole, the rest token by token
+        if(format == RITFormat.BINARY)
+        {
+            CompactQuadTree tree = CompactQuadTree.fromNode(root);
+            if(!file.createNewFile())
+                throw new IOException("Compressed file already exists!");
+            new RITBFile(sideLength, tree).write(file);
+            return tree.getNodeCount();
+        }
+
+        //Residuals are found before the file is made, so bad values leave no file behind
+        int[] residuals = format == RITFormat.PREDICTIVE ? PredictiveCoder.encode(root, sideLength) : null;
+        try(QuadTreeWriter writer = createOutput(file, "Compressed"))
+        {
+            writer.writeToken(sideLength * sideLength);
+            switch(format)
+            {
+                case PROGRESSIVE:
+                    writer.writeLevelOrder(root, sideLength);
+                    break;
+                case SHARED:
+                    writer.writeShared(new QuadTreeDag().intern(root));
+                    break;
+                case PREDICTIVE:
+                    for(int token : residuals)
+                        writer.writeToken(token);
+                    break;
+                default:
+                    writer.write(root);
+            }
+            return writer.getTokenCount() - 1;
+        }
+    }
+
+    /**
+     * Gets the console lines of a job's phase timings.
+     *
+     * @param timings the job's phase timings
+     * @return the table's lines, none unless --stats was given
+     */
+    private List<String> statsLines(PhaseStats timings)
+    {
+        if(!stats)
+            return new ArrayList<String>();
+        return Arrays.asList(timings.toText().split("\\R"));
+    }
+
+    /**
+     * Shows a laid out image on the canvas, fitted to it, ready to be
+     * zoomed and panned.
+     *
+     * @param in the file the image was read from
+     * @param tree the laid out image
+     * @param timings the job's phase timings
+     */
+    private void view(File in, LodQuadTree tree, PhaseStats timings)
+    {
+        PhaseStats.Phase phase = timings.begin("draw");
+        canvas.setHeight(VIEWPORT);
+        canvas.setWidth(VIEWPORT);
+        int blocks = zoom.show(tree);
+        phase.end(0, 0, 0, blocks);
+        outputLine("Viewing: " + in.getAbsolutePath() + " (scroll to zoom, drag to pan, double click to fit)");
+        outputLine(cache.toString());
+        outputLines(statsLines(timings));
+    }
+
+    /**
+     * Queues a job on the worker thread. Its progress drives the progress
+     * bar while it runs, and its result is handed to done on the
+     * application thread once it succeeds.
+     *
+     * @param description console line shown when the job starts
+     * @param job the job to run
+     * @param done what to do with the job's result
+     * @param <V> the type of the job's result
+     */
+    private <V> void submit(String description, ImageTask<V> job, Consumer<V> done)
+    {
+        if(!jobs.isEmpty())
+            outputLine("Queued: " + description);
+        jobs.add(job);
+
+        job.setOnRunning((event) ->
+                {
+                    outputLine(description);
+                    progress.progressProperty().bind(job.progressProperty());
+                }
+        );
+        job.setOnSucceeded((event) ->
+                {
+                    finish(job);
+                    done.accept(job.getValue());
+                }
+        );
+        job.setOnFailed((event) ->
+                {
+                    finish(job);
+                    outputLine("Failed: " + job.getException().getMessage());
+                }
+        );
+        job.setOnCancelled((event) ->
+                {
+                    finish(job);
+                    outputLine("Cancelled: " + description);
+                }
+        );
+        executor.execute(job);
+    }
+
+    /**
+     * Forgets a job that is done and resets the progress bar.
+     *
+     * @param job the job that is done
+     */
+    private void finish(Task<?> job)
+    {
+        jobs.remove(job);
+        progress.progressProperty().unbind();
+        progress.setProgress(0);
     }
 
     /**
@@ -66,31 +398,54 @@ public class RITGUI extends Application
         Button compress = new Button("Compress");
         compress.setOnAction((event) ->
                 {
-                    try
+                    File in = inputFile;
+                    File out = outputFile;
+                    if(in == null || out == null)
                     {
-                        //Reads input file
-                        consoleOutput.setText("");
-                        outputLine("Compressing: " + inputFile.getCanonicalPath());
-                        Scanner fileReader = new Scanner(inputFile);
-                        ArrayList<Integer> pixels = RITCompress.readFile(fileReader);
-
-                        //Converts image list to quadtree
-                        int[][] image = RITCompress.listToImage(pixels);
-                        int sideLength = image.length;
-                        RITQTNode root = RITQTNode.compress(image, sideLength);
-                        outputLine("QTree: " + root);
-
-                        //Writes quadtree to output file
-                        int compressedSize = RITCompress.writeQuadtree(root, outputFile);
-                        outputLine("Output file: " + outputFile.getCanonicalPath());
-
-                        //Compares quadtree statistic
-                        outputLine("Raw image size: " + sideLength * sideLength);
-                        outputLine("Compressed image size: " + compressedSize);
-                        outputLine("Compression %: " + RITCompress.compressionRate(sideLength * sideLength, compressedSize));
+                        outputLine("Set the input and output files first!");
+                        return;
                     }
-                    catch (FileNotFoundException e) { e.printStackTrace(); }
-                    catch (IOException e) { e.printStackTrace(); }
+
+                    PhaseStats timings = new PhaseStats("RITGUI", in.getPath());
+                    submit("Compressing: " + in.getAbsolutePath(), new ImageTask<List<String>>()
+                    {
+                        @Override
+                        protected List<String> call() throws IOException
+                        {
+                            List<String> lines = new ArrayList<String>();
+
+                            //Reads input file, unless it was read before
+                            int[] pixels = readPixels(this, in, timings);
+
+                            //Converts image list to quadtree
+                            PhaseStats.Phase phase = timings.begin("compress");
+                            int[][] image = RITCompress.listToImage(pixels);
+                            int sideLength = image.length;
+                            RITQTNode root = RITQTNode.compress(image, sideLength);
+                            QuadTreeSummary summary = QuadTreeSummary.of(root);
+                            phase.end(0, 0, pixels.length, summary.getNodeCount());
+                            step(0.5);
+
+                            phase = timings.begin("toString");
+                            lines.add("QTree: " + (verbose ? root.toString() : summary));
+                            phase.end(0, 0, 0, summary.getNodeCount());
+
+                            //Writes quadtree to output file in the layout its extension names
+                            phase = timings.begin("write");
+                            int compressedSize = writeCompressed(root, sideLength, out);
+                            phase.end(0, out.length(), compressedSize, summary.getNodeCount());
+                            step(1);
+                            lines.add("Output file: " + out.getCanonicalPath());
+
+                            //Compares quadtree statistic
+                            lines.add("Raw image size: " + sideLength * sideLength);
+                            lines.add("Compressed image size: " + compressedSize);
+                            lines.add("Compression %: " + RITCompress.compressionRate(sideLength * sideLength, compressedSize));
+                            lines.add(cache.toString());
+                            lines.addAll(statsLines(timings));
+                            return lines;
+                        }
+                    }, this::outputLines);
                 }
         );
         operations.getChildren().add(compress);
@@ -99,26 +454,96 @@ public class RITGUI extends Application
         Button decompress = new Button("Decompress");
         decompress.setOnAction((event) ->
                 {
-                    try
+                    File in = inputFile;
+                    File out = outputFile;
+                    if(in == null || out == null)
                     {
-                        //Reads input file
-                        consoleOutput.setText("");
-                        outputLine("Decompressing: " + inputFile.getCanonicalPath());
-                        Scanner fileReader = new Scanner(inputFile);
-                        int sideLength = (int) Math.sqrt(fileReader.nextInt());
-                        ArrayList<Integer> tokens = RITUncompress.readFile(fileReader);
-
-                        //Converts input to image array
-                        RITQTNode root = RITUncompress.parse(tokens);
-                        int[][] image = new int[sideLength][sideLength];
-                        outputLine("QTree: " + root);
-
-                        //Writes image array to output file
-                        RITUncompress.writeImage(root.uncompress(image, sideLength), outputFile);
-                        outputLine("Output file: " + outputFile.getCanonicalPath());
+                        outputLine("Set the input and output files first!");
+                        return;
                     }
-                    catch (FileNotFoundException e) { e.printStackTrace(); }
-                    catch (IOException e) { e.printStackTrace(); }
+
+                    PhaseStats timings = new PhaseStats("RITGUI", in.getPath());
+                    submit("Decompressing: " + in.getAbsolutePath(), new ImageTask<List<String>>()
+                    {
+                        @Override
+                        protected List<String> call() throws IOException
+                        {
+                            List<String> lines = new ArrayList<String>();
+
+                            //Level-order files are decoded straight into pixels, unless they were before
+                            if(RITFormat.forFile(in) == RITFormat.PROGRESSIVE)
+                            {
+                                byte[] pixels = readProgressive(this, in, timings);
+                                step(0.5);
+
+                                PhaseStats.Phase phase = timings.begin("write");
+                                try(QuadTreeWriter writer = createOutput(out, "Uncompressed"))
+                                {
+                                    writer.writePixels(pixels, 0, pixels.length);
+                                }
+                                phase.end(0, out.length(), pixels.length, 0);
+                                step(1);
+                                lines.add("Output file: " + out.getCanonicalPath());
+                                lines.add(cache.toString());
+                                lines.addAll(statsLines(timings));
+                                return lines;
+                            }
+
+                            //Color files are decoded with every channel, their cached luminance isn't enough
+                            if(RITFormat.forFile(in) == RITFormat.COLOR)
+                            {
+                                PhaseStats.Phase phase = timings.begin("uncompress");
+                                RITCFile contents = RITCFile.read(in);
+                                byte[] values = contents.uncompress();
+                                phase.end(in.length(), 0, values.length, contents.getValueCount());
+                                step(0.5);
+
+                                phase = timings.begin("write");
+                                try(QuadTreeWriter writer = createOutput(out, "Uncompressed"))
+                                {
+                                    writer.writePixels(values, 0, values.length);
+                                }
+                                phase.end(0, out.length(), values.length, 0);
+                                step(1);
+                                lines.add("Output file: " + out.getCanonicalPath());
+                                lines.addAll(statsLines(timings));
+                                return lines;
+                            }
+
+                            //Reads and parses input file, unless it was before
+                            CompressedImage compressed = readCompressed(this, in, timings);
+                            RITQTNode root = compressed.getRoot();
+                            int sideLength = compressed.getSideLength();
+
+                            PhaseStats.Phase phase = timings.begin("toString");
+                            QuadTreeSummary summary = QuadTreeSummary.of(root);
+                            lines.add("QTree: " + (verbose ? root.toString() : summary));
+                            phase.end(0, 0, 0, summary.getNodeCount());
+
+                            //Converts quadtree to image array, copying the blocks of shared subtrees
+                            phase = timings.begin("uncompress");
+                            int[][] image = QuadTreeDag.uncompress(root, new int[sideLength][sideLength], sideLength);
+                            phase.end(0, 0, (long) sideLength * sideLength, summary.getNodeCount());
+                            step(0.5);
+
+                            //Writes image array to output file
+                            phase = timings.begin("write");
+                            try(QuadTreeWriter writer = createOutput(out, "Uncompressed"))
+                            {
+                                for(int[] row : image)
+                                {
+                                    for(int pixel : row)
+                                        writer.writeToken(pixel);
+                                }
+                            }
+                            phase.end(0, out.length(), (long) sideLength * sideLength, 0);
+                            step(1);
+                            lines.add("Output file: " + out.getCanonicalPath());
+                            lines.add(cache.toString());
+                            lines.addAll(statsLines(timings));
+                            return lines;
+                        }
+                    }, this::outputLines);
                 }
         );
         operations.getChildren().add(decompress);
@@ -127,27 +552,92 @@ public class RITGUI extends Application
         Button viewInput = new Button("View");
         viewInput.setOnAction((event) ->
                 {
+                    File in = inputFile;
+                    if(in == null)
+                    {
+                        outputLine("Set the input file first!");
+                        return;
+                    }
+
+                    PhaseStats timings = new PhaseStats("RITGUI", in.getPath());
                     try
                     {
-                        //Reads and converts file to a list of pixels
-                        Scanner fileReader = new Scanner(inputFile);
-                        ArrayList<Integer> pixels = RITCompress.readFile(fileReader);
-
-                        //Changes canvas size
-                        int sideLength = (int)Math.sqrt(pixels.size());
-                        canvas.setHeight(sideLength);
-                        canvas.setWidth(sideLength);
-
-                        //Draws pixels onto canvas
-                        RITViewer.drawImage(canvas.getGraphicsContext2D(), pixels, sideLength);
-                        consoleOutput.setText("Viewing: " + inputFile.getCanonicalPath());
+                        //Level-order files are drawn level by level while they are read, unless decoded before
+                        if(RITFormat.forFile(in) == RITFormat.PROGRESSIVE)
+                        {
+                            zoom.clear();
+                            byte[] pixels = cache.peek(in, byte[].class);
+                            if(pixels == null)
+                                RITViewer.drawProgressive(canvas, in);
+                            else
+                            {
+                                int sideLength = (int) Math.sqrt(pixels.length);
+                                canvas.setHeight(sideLength);
+                                canvas.setWidth(sideLength);
+                                RITViewer.drawImage(canvas.getGraphicsContext2D(), pixels, sideLength);
+                            }
+                            outputLine("Viewing: " + in.getCanonicalPath());
+                            outputLine(cache.toString());
+                            return;
+                        }
+
+                        //Compressed files are read and laid out in the background, then zoomed and panned on the canvas
+                        if(CompressedImage.isCompressed(in))
+                        {
+                            submit("Reading: " + in.getAbsolutePath(), new ImageTask<LodQuadTree>()
+                            {
+                                @Override
+                                protected LodQuadTree call() throws IOException
+                                {
+                                    CompressedImage image = readCompressed(this, in, timings);
+                                    step(0.5);
+
+                                    PhaseStats.Phase phase = timings.begin("layout");
+                                    LodQuadTree tree = LodQuadTree.build(image.getRoot(), image.getSideLength());
+                                    phase.end(0, 0, 0, tree.getNodeCount());
+                                    step(1);
+                                    return tree;
+                                }
+                            }, (tree) -> view(in, tree, timings));
+                            return;
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        outputLine("Cannot view: " + e.getMessage());
+                        return;
                     }
-                    catch (FileNotFoundException e) { e.printStackTrace(); }
-                    catch (IOException e) { e.printStackTrace(); }
+
+                    //Reads the pixels, unless read before, and turns them into a quadtree in the background
+                    submit("Reading: " + in.getAbsolutePath(), new ImageTask<LodQuadTree>()
+                    {
+                        @Override
+                        protected LodQuadTree call() throws IOException
+                        {
+                            int[] pixels = readPixels(this, in, timings);
+
+                            PhaseStats.Phase phase = timings.begin("layout");
+                            int sideLength = (int)Math.sqrt(pixels.length);
+                            LodQuadTree tree = LodQuadTree.build(RITQTNode.compress(RITCompress.listToImage(pixels), sideLength), sideLength);
+                            phase.end(0, 0, pixels.length, tree.getNodeCount());
+                            step(1);
+                            return tree;
+                        }
+                    }, (tree) -> view(in, tree, timings));
                 }
         );
         operations.getChildren().add(viewInput);
 
+        //Cancel the running job and every queued one
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction((event) ->
+                {
+                    for(Task<?> job : new ArrayList<Task<?>>(jobs))
+                        job.cancel();
+                }
+        );
+        operations.getChildren().add(cancel);
+
         //Clear console output
         Button clear = new Button("Clear");
         clear.setOnAction((event) ->
@@ -156,7 +646,8 @@ public class RITGUI extends Application
                     outputFile = null;
                     inputLocation.setText("");
                     outputLocation.setText("");
-                    consoleOutput.setText("\n\n\n\n\n");
+                    console.clear();
+                    zoom.clear();
                     canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
                 }
         );
@@ -167,6 +658,9 @@ public class RITGUI extends Application
         quit.setOnAction((event) -> System.exit(0));
         operations.getChildren().add(quit);
 
+        //Progress of the running job
+        operations.getChildren().add(progress);
+
         return operations;
     }
 
@@ -231,9 +725,6 @@ public class RITGUI extends Application
         Group canvasContainer = new Group();
         canvasContainer.getChildren().add(canvas);
 
-        //Fifth row: Text representing console output
-        consoleOutput.setText("\n\n\n\n\n");
-
         //Adds rows to Vbox
         layout.getChildren().add(operations);
         layout.getChildren().add(new Separator(Orientation.HORIZONTAL));
@@ -250,6 +741,19 @@ public class RITGUI extends Application
     @Override
     public void start(Stage stage)
     {
+        //Whole quadtrees are only written to the console when asked for
+        verbose = getParameters().getRaw().contains("--verbose");
+        stats = getParameters().getRaw().contains("--stats");
+
+        //Sizes the decoded image cache
+        String cacheSize = getParameters().getNamed().get("cache-mb");
+        try
+        {
+            if(cacheSize != null)
+                cache = new DecodedImageCache(Math.max(Long.parseLong(cacheSize), 0) * 1000000);
+        }
+        catch(NumberFormatException e) { outputLine("Ignoring invalid --cache-mb: " + cacheSize); }
+
         //Creates the scene's layout
         VBox controls = createLayout(stage);
 
@@ -260,6 +764,15 @@ public class RITGUI extends Application
         stage.show();
     }
 
+    @Override
+    public void stop()
+    {
+        //Stops the running job, queued ones never start; cancelling removes a job from the list
+        for(Task<?> job : new ArrayList<Task<?>>(jobs))
+            job.cancel();
+        executor.shutdownNow();
+    }
+
     public static void main(String[] args)
     {
         Application.launch(args);
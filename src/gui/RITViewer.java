@@ -1,18 +1,26 @@
 package gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import model.CompressedImage;
+import model.LodQuadTree;
+import model.ProgressiveDecoder;
+import model.RITFormat;
+import model.RITQTNode;
+import model.TokenReader;
+import ptui.RITCompress;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 public class RITViewer extends Application
 {
@@ -20,11 +28,31 @@ public class RITViewer extends Application
     private int sideLength;
 
     /** The pixel values of provided image*/
-    private ArrayList<Integer> pixels = new ArrayList<Integer>();
+    private int[] pixels = new int[0];
+
+    /** The level-order compressed file to draw progressively, if given one */
+    private File progressiveFile = null;
+
+    /** The laid out quadtree to zoom and pan, if given a compressed file or a large image */
+    private LodQuadTree tree = null;
+
+    /** Largest side length of the window's canvas, larger images are zoomed and panned */
+    private static final int MAX_VIEWPORT = 800;
+
+    /** Fill color of each gray level, shared by every block of that value */
+    static final Color[] GRAYS = new Color[256];
+
+    static
+    {
+        for(int val = 0; val < GRAYS.length; val++)
+            GRAYS[val] = Color.rgb(val, val, val);
+    }
 
     /**
      * Reads in the provided square grayscale image.
-     * The image is then stored into an array.
+     * Uncompressed images are stored into an array and compressed
+     * ones are laid out for zooming, as are uncompressed ones too
+     * large for the window.
      */
     @Override
     public void init() throws Exception {
@@ -34,14 +62,33 @@ public class RITViewer extends Application
         {
             //Creates FileReader for provided file in arguments
             List<String> args = getParameters().getRaw();
-            Scanner file = new Scanner(new File(args.get(0)));
+            File input = new File(args.get(0));
 
-            //Reads in all pixel values
-            while (file.hasNextInt())
+            //Compressed files are drawn from their quadtree, only the part in view
+            if(input.exists() && RITFormat.forFile(input) != RITFormat.PROGRESSIVE && CompressedImage.isCompressed(input))
+            {
+                CompressedImage image = CompressedImage.read(input);
+                sideLength = image.getSideLength();
+                tree = LodQuadTree.build(image.getRoot(), sideLength);
+                return;
+            }
+
+            TokenReader file = new TokenReader(input);
+
+            //Level-order files are drawn while they are read, only the size is needed now
+            if(RITFormat.forFile(input) == RITFormat.PROGRESSIVE)
             {
-                int val = Integer.parseInt(file.next());
-                pixels.add(val);
+                progressiveFile = input;
+                sideLength = (int) Math.sqrt(file.nextInt());
+                file.close();
+                return;
+            }
 
+            //Reads in all pixel values
+            pixels = file.readAll();
+            file.close();
+            for(int val : pixels)
+            {
                 //Error Check: Pixel value isn't in range 0-255
                 if(val < 0 || val > 255)
                 {
@@ -51,7 +98,14 @@ public class RITViewer extends Application
             }
 
             //Determines image dimension
-            sideLength = (int) Math.sqrt(pixels.size());
+            sideLength = (int) Math.sqrt(pixels.length);
+
+            //Images larger than the window are compressed so they can be zoomed and panned
+            if(sideLength > MAX_VIEWPORT)
+            {
+                tree = LodQuadTree.build(RITQTNode.compress(RITCompress.listToImage(pixels), sideLength), sideLength);
+                pixels = null;
+            }
         }
         //Error Check: The provided file cannot be found
         catch(FileNotFoundException e)
@@ -65,6 +119,12 @@ public class RITViewer extends Application
             System.out.println("Image file contains a non-integer!");
             System.exit(-1);
         }
+        //Error Check: Compressed file isn't a valid quadtree
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
     }
 
     /***
@@ -78,7 +138,17 @@ public class RITViewer extends Application
         //Sets the scene to the image array
         Group root = new Group();
         Canvas canvas = new Canvas(sideLength, sideLength);
-        drawImage(canvas.getGraphicsContext2D(), pixels, sideLength);
+        if(progressiveFile != null)
+            drawProgressive(canvas, progressiveFile);
+        else if(tree != null)
+        {
+            //Scroll to zoom, drag to pan, double click to fit the whole image again
+            canvas.setWidth(Math.min(sideLength, MAX_VIEWPORT));
+            canvas.setHeight(Math.min(sideLength, MAX_VIEWPORT));
+            new ZoomView(canvas).show(tree);
+        }
+        else
+            drawImage(canvas.getGraphicsContext2D(), pixels, sideLength);
         root.getChildren().add(canvas);
 
         //Displays the scene in application
@@ -89,26 +159,90 @@ public class RITViewer extends Application
     }
 
     /**
-     * Draws a square image using given pixel values
+     * Draws a square image using given pixel values, written to the
+     * canvas in one bulk pixel transfer.
      *
      * @param gc The canvas to draw pixels on
      * @param pixels The grayscale pixel values to use
      * @param length The side length of square image
      */
-    public static void drawImage(GraphicsContext gc, ArrayList<Integer> pixels, int length)
+    public static void drawImage(GraphicsContext gc, int[] pixels, int length)
     {
-        //Draws each pixel to its assigned location
-        for(int row = 0; row < length; row++)
+        int[] argb = new int[length * length];
+        for(int i = 0; i < argb.length; i++)
+            argb[i] = gray(pixels[i]);
+        gc.getPixelWriter().setPixels(0, 0, length, length, PixelFormat.getIntArgbInstance(), argb, 0, length);
+    }
+
+    /**
+     * Draws a square image using given pixel values, written to the
+     * canvas in one bulk pixel transfer.
+     *
+     * @param gc The canvas to draw pixels on
+     * @param pixels The grayscale pixel values to use, one unsigned byte each
+     * @param length The side length of square image
+     */
+    public static void drawImage(GraphicsContext gc, byte[] pixels, int length)
+    {
+        int[] argb = new int[length * length];
+        for(int i = 0; i < argb.length; i++)
+            argb[i] = gray(pixels[i] & 0xFF);
+        gc.getPixelWriter().setPixels(0, 0, length, length, PixelFormat.getIntArgbInstance(), argb, 0, length);
+    }
+
+    /**
+     * Converts a grayscale value into an opaque ARGB pixel.
+     *
+     * @param val The grayscale value
+     * @return The ARGB pixel
+     */
+    private static int gray(int val)
+    {
+        return 0xFF000000 | (val << 16) | (val << 8) | val;
+    }
+
+    /**
+     * Reads a level-order (.ritp) file on a background thread and draws
+     * each level of its quadtree as soon as it has been read, coarse
+     * blocks first. The canvas is resized to the image.
+     *
+     * @param canvas The canvas to draw on
+     * @param file The level-order file to read
+     * @throws IOException if the file cannot be read
+     */
+    public static void drawProgressive(Canvas canvas, File file) throws IOException
+    {
+        TokenReader input = new TokenReader(file);
+        int length;
+        try
+        {
+            length = (int) Math.sqrt(input.nextInt());
+        }
+        catch(RuntimeException e)
+        {
+            input.close();
+            throw new IOException("Image file is missing its size!");
+        }
+        canvas.setWidth(length);
+        canvas.setHeight(length);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        //Each level is copied, since the decoder keeps refining its buffer
+        Thread reader = new Thread(() ->
         {
-            for(int col = 0; col < length; col++)
+            try
             {
-                int pixel = pixels.get(row * length + col);
-                Color color = Color.rgb(pixel, pixel, pixel);
-                gc.setFill(color);
-                gc.setStroke(color);
-                gc.fillRect(col, row, col, row);
+                ProgressiveDecoder.decode(input, length, (pixels, level, blockSize) ->
+                {
+                    byte[] frame = pixels.clone();
+                    Platform.runLater(() -> drawImage(gc, frame, length));
+                });
             }
-        }
+            catch(RuntimeException e) { System.out.println("Cannot read " + file.getName() + ": " + e.getMessage()); }
+            finally { input.close(); }
+        }, "ritp-reader");
+        reader.setDaemon(true);
+        reader.start();
     }
 
     public static void main(String[] args)
@@ -116,7 +250,7 @@ public class RITViewer extends Application
         //Ensure that there are program arguments
         if(args.length == 0)
         {
-            System.out.println("Usage: java RITViewer uncompressed.txt");
+            System.out.println("Usage: java RITViewer (uncompressed.txt | compressed.(rit|ritb|ritp|ritd|ritr|ritc))");
             System.exit(-1);
         }
 
@@ -0,0 +1,168 @@
+package gui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import model.LodQuadTree;
+
+/**
+ * Shows a quadtree on a fixed size canvas, zoomed with the scroll wheel
+ * around the cursor, panned by dragging and fitted back to the canvas by
+ * a double click.
+ *
+ * Each frame only walks the part of the tree inside the canvas, down to
+ * blocks of about one canvas pixel, so its cost depends on the canvas
+ * size rather than on the image size.
+ */
+class ZoomView
+{
+    /** Largest zoom, in canvas pixels per image pixel */
+    private static final double MAX_SCALE = 64;
+
+    /** Zoom change per scroll wheel notch */
+    private static final double ZOOM_STEP = 1.25;
+
+    /** Color shown outside the image */
+    private static final Color BACKGROUND = Color.rgb(64, 64, 64);
+
+    /** The canvas drawn on */
+    private final Canvas canvas;
+
+    /** The tree shown, null while the canvas shows something else */
+    private LodQuadTree tree = null;
+
+    /** Canvas pixels per image pixel */
+    private double scale = 1;
+
+    /** The image column and row at the canvas's top left corner */
+    private double viewX = 0, viewY = 0;
+
+    /** Where the last drag event happened, in canvas pixels */
+    private double dragX, dragY;
+
+    /**
+     * Construct a view drawing on a canvas, taking over its mouse handlers.
+     *
+     * @param canvas the canvas to draw on
+     */
+    ZoomView(Canvas canvas)
+    {
+        this.canvas = canvas;
+
+        //Zooms around the cursor, so the image pixel under it stays put
+        canvas.setOnScroll((event) ->
+                {
+                    if(tree == null || event.getDeltaY() == 0)
+                        return;
+                    double factor = event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+                    double zoomed = Math.max(minScale(), Math.min(scale * factor, MAX_SCALE));
+                    viewX += event.getX() / scale - event.getX() / zoomed;
+                    viewY += event.getY() / scale - event.getY() / zoomed;
+                    scale = zoomed;
+                    redraw();
+                }
+        );
+
+        //Pans by the distance dragged
+        canvas.setOnMousePressed((event) ->
+                {
+                    dragX = event.getX();
+                    dragY = event.getY();
+                }
+        );
+        canvas.setOnMouseDragged((event) ->
+                {
+                    if(tree == null)
+                        return;
+                    viewX -= (event.getX() - dragX) / scale;
+                    viewY -= (event.getY() - dragY) / scale;
+                    dragX = event.getX();
+                    dragY = event.getY();
+                    redraw();
+                }
+        );
+
+        //Fits the whole image again
+        canvas.setOnMouseClicked((event) ->
+                {
+                    if(tree != null && event.getClickCount() == 2)
+                        fit();
+                }
+        );
+    }
+
+    /**
+     * Shows a tree, fitted to the canvas.
+     *
+     * @param tree the tree to show
+     * @return number of blocks drawn
+     */
+    int show(LodQuadTree tree)
+    {
+        this.tree = tree;
+        return fit();
+    }
+
+    /**
+     * Stops showing the tree, leaving the canvas to other drawing.
+     */
+    void clear()
+    {
+        this.tree = null;
+    }
+
+    /**
+     * Gets the zoom at which the whole image fits the canvas.
+     *
+     * @return canvas pixels per image pixel
+     */
+    private double fitScale()
+    {
+        return Math.min(canvas.getWidth(), canvas.getHeight()) / tree.getSideLength();
+    }
+
+    /**
+     * Gets the smallest zoom allowed, half the fitted one.
+     *
+     * @return canvas pixels per image pixel
+     */
+    private double minScale()
+    {
+        return Math.min(fitScale() / 2, 1);
+    }
+
+    /**
+     * Zooms so the whole image fits the canvas, centered.
+     *
+     * @return number of blocks drawn
+     */
+    private int fit()
+    {
+        scale = fitScale();
+        viewX = (tree.getSideLength() - canvas.getWidth() / scale) / 2;
+        viewY = (tree.getSideLength() - canvas.getHeight() / scale) / 2;
+        return redraw();
+    }
+
+    /**
+     * Draws the part of the image inside the canvas.
+     *
+     * @return number of blocks drawn
+     */
+    int redraw()
+    {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        //Blocks are snapped to whole pixels, so neighbors share edges without antialiased seams
+        return tree.render(viewX, viewY, scale, canvas.getWidth(), canvas.getHeight(), (value, x, y, size) ->
+                {
+                    double left = Math.floor(x);
+                    double top = Math.floor(y);
+                    gc.setFill(RITViewer.GRAYS[value]);
+                    gc.fillRect(left, top, Math.max(Math.floor(x + size) - left, 1), Math.max(Math.floor(y + size) - top, 1));
+                }
+        );
+    }
+}
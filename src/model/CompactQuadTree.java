@@ -0,0 +1,352 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a quadtree for an image compressed using the Rich Image Tool
+ * file format, stored as primitive arrays instead of linked nodes.
+ *
+ * The nodes are kept in preorder (the same order as the .rit file).
+ * A bitset records which nodes are split into 4 sub-regions, and the
+ * grayscale values (0-255) of the leaf nodes are kept in a byte array,
+ * also in preorder. A tree costs roughly 1 bit per node plus 1 byte per
+ * leaf, compared to a full object per node for RITQTNode.
+ */
+public class CompactQuadTree {
+    /** Value written for an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Bit i is set if preorder node i is split into 4 sub-regions */
+    private long[] splits;
+
+    /** Leaf values in preorder */
+    private byte[] leaves;
+
+    /** Number of nodes in the tree */
+    private int nodeCount;
+
+    /** Number of leaves in the tree */
+    private int leafCount;
+
+    /**
+     * Construct an empty tree with room for the given number of nodes.
+     *
+     * @param capacity expected number of nodes
+     */
+    private CompactQuadTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.splits = new long[(capacity + 63) >>> 6];
+        this.leaves = new byte[capacity];
+        this.nodeCount = 0;
+        this.leafCount = 0;
+    }
+
+    /**
+     * Construct a tree from its raw preorder arrays.
+     *
+     * @param splits split flag bitset, one bit per preorder node
+     * @param leaves leaf values in preorder
+     * @param nodeCount number of nodes
+     * @param leafCount number of leaves
+     */
+    CompactQuadTree(long[] splits, byte[] leaves, int nodeCount, int leafCount) {
+        this.splits = splits;
+        this.leaves = leaves;
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+    }
+
+    /**
+     * Get the number of nodes in the tree.
+     *
+     * @return node count
+     */
+    public int getNodeCount() { return this.nodeCount; }
+
+    /**
+     * Get the number of leaves in the tree.
+     *
+     * @return leaf count
+     */
+    public int getLeafCount() { return this.leafCount; }
+
+    /**
+     * Checks whether or not a node is split into 4 sub-regions.
+     *
+     * @param node preorder index of the node
+     * @return true if the node is an interior node
+     */
+    public boolean isSplit(int node) {
+        return (splits[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * Get the value of a leaf.
+     *
+     * @param leaf preorder index of the leaf, counting leaves only
+     * @return the leaf's grayscale value
+     */
+    public int getLeaf(int leaf) { return leaves[leaf] & 0xFF; }
+
+    /**
+     * Get the split flag bitset, one bit per preorder node.
+     *
+     * @return the backing split flags
+     */
+    long[] splitWords() { return this.splits; }
+
+    /**
+     * Get the leaf value array, in preorder.
+     *
+     * @return the backing leaf values
+     */
+    byte[] leafBytes() { return this.leaves; }
+
+    /**
+     * Approximate number of heap bytes held by this tree's arrays.
+     *
+     * @return size in bytes of the split flags and leaf values
+     */
+    public long footprint() {
+        return 16L + splits.length * 8L + 16L + leaves.length;
+    }
+
+    /**
+     * Appends a node to the end of the preorder arrays.
+     *
+     * @param val the node's value, or -1 for an interior node
+     */
+    private void append(int val) {
+        if(nodeCount == splits.length * 64)
+            splits = Arrays.copyOf(splits, splits.length * 2);
+
+        if(val == SPLIT_VALUE)
+            splits[nodeCount >>> 6] |= 1L << nodeCount;
+        else {
+            RITQTNode.checkValue(val);
+            if(leafCount == leaves.length)
+                leaves = Arrays.copyOf(leaves, leaves.length * 2);
+            leaves[leafCount++] = (byte) val;
+        }
+        nodeCount++;
+    }
+
+    /**
+     * Removes every node from the given preorder index onwards.
+     *
+     * @param nodes number of nodes to keep
+     * @param leafs number of leaves to keep
+     */
+    private void truncate(int nodes, int leafs) {
+        for(int i = nodes; i < nodeCount; i++)
+            splits[i >>> 6] &= ~(1L << i);
+        nodeCount = nodes;
+        leafCount = leafs;
+    }
+
+    /**
+     * Trims the backing arrays down to the tree's size.
+     *
+     * @return this tree
+     */
+    private CompactQuadTree trim() {
+        splits = Arrays.copyOf(splits, (nodeCount + 63) >>> 6);
+        leaves = Arrays.copyOf(leaves, leafCount);
+        return this;
+    }
+
+    /**
+     * Assuming this quadtree is the root,
+     * this 2D image array is converted to a quadtree representation
+     *
+     * @param image the 2D image array to read from
+     * @param sideLength the side length of the image
+     * @return the quadtree representation of this image
+     */
+    public static CompactQuadTree compress(int[][] image, int sideLength)
+    {
+        CompactQuadTree tree = new CompactQuadTree(1024);
+        tree.compress(image, 0, 0, sideLength);
+        return tree.trim();
+    }
+
+    /**
+     * Appends the quadtree of a region of the image to this tree.
+     * The region's children are appended first, and replaced by a
+     * single leaf if they turn out to be four equal leaves.
+     *
+     * @param image the 2D image array to read from
+     * @param rowStart the row component of the region's starting coordinates
+     * @param colStart the col component of the region's starting coordinates
+     * @param sideLength the side length of the region
+     */
+    private void compress(int[][] image, int rowStart, int colStart, int sideLength)
+    {
+        //Base case: This region is a single pixel
+        if(sideLength == 1)
+        {
+            append(image[rowStart][colStart]);
+            return;
+        }
+
+        //Recursive case: Appends the split node and its children
+        int nodeStart = nodeCount;
+        int leafStart = leafCount;
+        int childLength = sideLength/2;
+        append(SPLIT_VALUE);
+        compress(image, rowStart, colStart, childLength);
+        compress(image, rowStart, colStart + childLength, childLength);
+        compress(image, rowStart + childLength, colStart, childLength);
+        compress(image, rowStart + childLength, colStart + childLength, childLength);
+
+        //The four children are the same leaf, combine them into one leaf
+        if(nodeCount == nodeStart + 5 && leafCount == leafStart + 4
+                && leaves[leafStart] == leaves[leafStart + 1]
+                && leaves[leafStart + 1] == leaves[leafStart + 2]
+                && leaves[leafStart + 2] == leaves[leafStart + 3])
+        {
+            int val = leaves[leafStart] & 0xFF;
+            truncate(nodeStart, leafStart);
+            append(val);
+        }
+    }
+
+    /**
+     * Assuming this quadtree is the root,
+     * this quadtree is converted to a 2D image representation
+     *
+     * @param image the 2D image array to modify
+     * @param sideLength the side length of this quadtree
+     * @return the modified 2D image array
+     */
+    public int[][] uncompress(int[][] image, int sideLength)
+    {
+        uncompress(image, 0, 0, sideLength, new int[2]);
+        return image;
+    }
+
+    /**
+     * Fills the region of the node under the cursor, advancing the cursor
+     * past the node and all of its descendants.
+     *
+     * @param image the 2D image array to modify
+     * @param rowStart the row component of the node's starting coordinates
+     * @param colStart the col component of the node's starting coordinates
+     * @param sideLength the side length of the node's region
+     * @param cursor next preorder node index and next leaf index
+     */
+    private void uncompress(int[][] image, int rowStart, int colStart, int sideLength, int[] cursor)
+    {
+        //Recursive case: Node has children
+        if(isSplit(cursor[0]++))
+        {
+            int childLength = sideLength/2;
+            uncompress(image, rowStart, colStart, childLength, cursor);
+            uncompress(image, rowStart, colStart + childLength, childLength, cursor);
+            uncompress(image, rowStart + childLength, colStart, childLength, cursor);
+            uncompress(image, rowStart + childLength, colStart + childLength, childLength, cursor);
+        }
+        //Base case: Node is a leaf
+        else
+        {
+            int val = getLeaf(cursor[1]++);
+            for(int row = rowStart; row < rowStart + sideLength; row++)
+                Arrays.fill(image[row], colStart, colStart + sideLength, val);
+        }
+    }
+
+    /**
+     * Converts a linked quadtree into its compact representation.
+     *
+     * @param root the root of the quadtree
+     * @return the compact quadtree
+     */
+    public static CompactQuadTree fromNode(RITQTNode root)
+    {
+        CompactQuadTree tree = new CompactQuadTree(1024);
+        tree.appendNode(root);
+        return tree.trim();
+    }
+
+    /**
+     * Appends a linked node and its descendants in preorder.
+     *
+     * @param node the node to append
+     */
+    private void appendNode(RITQTNode node)
+    {
+        append(node.getVal());
+        if(node.getVal() == SPLIT_VALUE)
+        {
+            appendNode(node.getUpperLeft());
+            appendNode(node.getUpperRight());
+            appendNode(node.getLowerLeft());
+            appendNode(node.getLowerRight());
+        }
+    }
+
+    /**
+     * Converts this quadtree into a linked quadtree.
+     *
+     * @return the root of the linked quadtree
+     */
+    public RITQTNode toNode()
+    {
+        return toNode(new int[2]);
+    }
+
+    /**
+     * Builds the linked node under the cursor, advancing the cursor
+     * past the node and all of its descendants.
+     *
+     * @param cursor next preorder node index and next leaf index
+     * @return the linked node
+     */
+    private RITQTNode toNode(int[] cursor)
+    {
+        if(isSplit(cursor[0]++))
+            return new RITQTNode(SPLIT_VALUE, toNode(cursor), toNode(cursor), toNode(cursor), toNode(cursor));
+        else
+            return new RITQTNode(getLeaf(cursor[1]++));
+    }
+
+    /**
+     * Builds a quadtree from its preorder token representation.
+     *
+     * @param tokens Quadtree values, positioned at the root's value
+     * @return the compact quadtree
+     */
+    public static CompactQuadTree parse(TokenCursor tokens)
+    {
+        CompactQuadTree tree = new CompactQuadTree(Math.max(tokens.remaining(), 1));
+        int pending = 1;
+
+        //Every split adds 4 pending children, every node fills one
+        while(pending > 0)
+        {
+            int val = tokens.next();
+            tree.append(val);
+            pending += val == SPLIT_VALUE ? 3 : -1;
+        }
+
+        return tree.trim();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(nodeCount * 4);
+        int leaf = 0;
+
+        for(int node = 0; node < nodeCount; node++)
+        {
+            if(isSplit(node))
+                builder.append(SPLIT_VALUE);
+            else
+                builder.append(getLeaf(leaf++));
+            builder.append(' ');
+        }
+
+        return builder.toString();
+    }
+}
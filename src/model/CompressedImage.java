@@ -0,0 +1,232 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed image read back into a quadtree, whatever its layout.
+ *
+ * The layout is chosen by the file's extension, and Huffman coded files
+ * are recognized by their magic. Files starting with the image size
+ * header are expected for the token layouts, as RITUncompress does.
+ * Color files are read as their grayscale luminance channel.
+ * Problems are reported by exception, so callers that cannot exit (the
+ * GUI) can read any compressed file.
+ */
+public class CompressedImage
+{
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** The image's quadtree, possibly with shared subtrees */
+    private final RITQTNode root;
+
+    /**
+     * Construct a compressed image.
+     *
+     * @param sideLength the side length of the image
+     * @param root the image's quadtree
+     */
+    public CompressedImage(int sideLength, RITQTNode root)
+    {
+        this.sideLength = sideLength;
+        this.root = root;
+    }
+
+    /**
+     * Get the side length of the image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get the image's quadtree.
+     *
+     * @return the root of the quadtree
+     */
+    public RITQTNode getRoot() { return this.root; }
+
+    /**
+     * Checks whether or not a file holds a compressed image, judging by
+     * its extension or its Huffman magic.
+     *
+     * @param file the file to check
+     * @return true if the file can be read by read
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressed(File file) throws IOException
+    {
+        String name = file.getName().toLowerCase();
+        for(RITFormat format : RITFormat.values())
+        {
+            if(name.endsWith(format.getExtension()))
+                return true;
+        }
+        return RITHFile.isHuffman(file);
+    }
+
+    /**
+     * Checks whether or not a compressed file is read token by token, as
+     * the decimal layouts are, rather than whole as the packed and
+     * Huffman coded ones are.
+     *
+     * @param file the file to check
+     * @return true if the file can be read by read(TokenReader, RITFormat)
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isTokenLayout(File file) throws IOException
+    {
+        RITFormat format = RITFormat.forFile(file);
+        return format != RITFormat.BINARY && format != RITFormat.COLOR && !RITHFile.isHuffman(file);
+    }
+
+    /**
+     * Reads a compressed image file of any layout.
+     *
+     * @param file the file to read
+     * @return the image's side length and quadtree
+     * @throws IOException if the file cannot be read or isn't a valid compressed image
+     */
+    public static CompressedImage read(File file) throws IOException
+    {
+        RITFormat format = RITFormat.forFile(file);
+        if(isTokenLayout(file))
+        {
+            try(TokenReader reader = new TokenReader(file))
+            {
+                return read(reader, format);
+            }
+        }
+
+        try
+        {
+            //Huffman coded files hold the tokens of their extension's layout
+            if(RITHFile.isHuffman(file))
+            {
+                RITHFile contents = RITHFile.read(file);
+                TokenCursor tokens = new TokenCursor(contents.getTokens());
+                RITQTNode root = format == RITFormat.PREDICTIVE ? PredictiveCoder.decode(tokens) : RITQTNode.parse(tokens);
+                return new CompressedImage(contents.getSideLength(), root);
+            }
+
+            //Color files are read as their luminance channel, the others are never read
+            if(format == RITFormat.COLOR)
+            {
+                RITBFile luminance = RITCFile.readLuminance(file);
+                return new CompressedImage(luminance.getSideLength(), luminance.getTree().toNode());
+            }
+
+            RITBFile contents = RITBFile.read(file);
+            return new CompressedImage(contents.getSideLength(), contents.getTree().toNode());
+        }
+        //Error Check: Quadtree value isn't valid
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            throw new IOException("Quadtree is missing values!");
+        }
+    }
+
+    /**
+     * Reads a compressed image in one of the token layouts, the ones
+     * that start with the image size header.
+     *
+     * @param reader the file's token reader, positioned at the image size header
+     * @param format the file's layout, TEXT, PROGRESSIVE, SHARED or PREDICTIVE
+     * @return the image's side length and quadtree
+     * @throws IOException if the file cannot be read or isn't a valid compressed image
+     */
+    public static CompressedImage read(TokenReader reader, RITFormat format) throws IOException
+    {
+        //Level-order files only decode to pixels, which are compressed again
+        if(format == RITFormat.PROGRESSIVE)
+        {
+            byte[] pixels = readProgressive(reader);
+            int sideLength = (int) Math.sqrt(pixels.length);
+            int[][] image = new int[sideLength][sideLength];
+            for(int i = 0; i < pixels.length; i++)
+                image[i / sideLength][i % sideLength] = pixels[i] & 0xFF;
+            return new CompressedImage(sideLength, RITQTNode.compress(image, sideLength));
+        }
+
+        try
+        {
+            int sideLength = readSideLength(reader);
+            TokenCursor tokens = new TokenCursor(reader.readAll());
+            if(format == RITFormat.SHARED)
+                return new CompressedImage(sideLength, QuadTreeDag.parse(tokens, sideLength));
+            if(format == RITFormat.PREDICTIVE)
+                return new CompressedImage(sideLength, PredictiveCoder.decode(tokens));
+            return new CompressedImage(sideLength, RITQTNode.parse(tokens));
+        }
+        //Error Check: File contains non-int value
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Image file contains a non-integer!");
+        }
+        //Error Check: Quadtree value isn't valid
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            throw new IOException("Quadtree is missing values!");
+        }
+    }
+
+    /**
+     * Decodes a level-order (.ritp) file straight into pixels, without
+     * building a quadtree.
+     *
+     * @param reader the file's token reader, positioned at the image size header
+     * @return the pixels, row by row, one byte each
+     * @throws IOException if the file cannot be read or isn't a valid level-order file
+     */
+    public static byte[] readProgressive(TokenReader reader) throws IOException
+    {
+        try
+        {
+            return ProgressiveDecoder.decode(reader, readSideLength(reader), null);
+        }
+        //Error Check: File contains non-int value
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Image file contains a non-integer!");
+        }
+        //Error Check: Quadtree value isn't valid
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            throw new IOException("Quadtree is missing values!");
+        }
+    }
+
+    /**
+     * Reads the image size header of a token layout.
+     *
+     * @param reader the file's token reader, positioned at the header
+     * @return the side length of the image
+     * @throws IOException if the file cannot be read or the image isn't a square
+     */
+    private static int readSideLength(TokenReader reader) throws IOException
+    {
+        //Error Check: Image is a square
+        int size = reader.nextInt();
+        int sideLength = (int) Math.sqrt(size);
+        if(sideLength * sideLength != size || size <= 0)
+            throw new IOException("Image provided is not a square!");
+        return sideLength;
+    }
+}
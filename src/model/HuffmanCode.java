@@ -0,0 +1,257 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A canonical Huffman code over the symbols 0 to alphabetSize - 1.
+ *
+ * A code is fully described by the bit length of each symbol: codes are
+ * handed out in order of (length, symbol), so only the lengths need to be
+ * stored with the data. Lengths are limited to MAX_LENGTH bits by halving
+ * the frequencies until the tree is shallow enough, which keeps decoding
+ * to a single lookup in a table of 2^maxLength entries per symbol.
+ *
+ * Bits are packed most significant bit first.
+ */
+public class HuffmanCode
+{
+    /** Longest code length allowed */
+    public static final int MAX_LENGTH = 16;
+
+    /** Bit length of each symbol's code, 0 for unused symbols */
+    private final int[] lengths;
+
+    /** Each symbol's code, right aligned */
+    private final int[] codes;
+
+    /** Length of the longest code */
+    private final int maxLength;
+
+    /**
+     * Construct a canonical code from its code lengths.
+     *
+     * @param lengths bit length of each symbol's code, 0 for unused symbols
+     * @throws IllegalArgumentException if the lengths don't form a prefix code
+     */
+    public HuffmanCode(int[] lengths)
+    {
+        this.lengths = lengths.clone();
+        this.codes = new int[lengths.length];
+
+        //Error Check: Lengths must fit the table and leave no code ambiguous
+        int longest = 0;
+        long kraft = 0;
+        for(int length : lengths)
+        {
+            if(length < 0 || length > MAX_LENGTH)
+                throw new IllegalArgumentException("Huffman code length out of range!");
+            if(length > 0)
+                kraft += 1L << (MAX_LENGTH - length);
+            longest = Math.max(longest, length);
+        }
+        if(kraft > 1L << MAX_LENGTH)
+            throw new IllegalArgumentException("Huffman code lengths don't form a prefix code!");
+        this.maxLength = longest;
+
+        //Hands out codes in order of (length, symbol)
+        int code = 0;
+        for(int length = 1; length <= maxLength; length++)
+        {
+            for(int symbol = 0; symbol < lengths.length; symbol++)
+            {
+                if(lengths[symbol] == length)
+                    codes[symbol] = code++;
+            }
+            code <<= 1;
+        }
+    }
+
+    /**
+     * Builds the optimal length-limited code for a set of frequencies.
+     *
+     * @param frequencies number of occurrences of each symbol
+     * @return the code
+     */
+    public static HuffmanCode fromFrequencies(long[] frequencies)
+    {
+        long[] weights = frequencies.clone();
+        while(true)
+        {
+            int[] lengths = codeLengths(weights);
+            if(Arrays.stream(lengths).max().orElse(0) <= MAX_LENGTH)
+                return new HuffmanCode(lengths);
+
+            //Too deep: flattens the distribution, keeping used symbols used
+            for(int symbol = 0; symbol < weights.length; symbol++)
+            {
+                if(weights[symbol] > 0)
+                    weights[symbol] = (weights[symbol] + 1) / 2;
+            }
+        }
+    }
+
+    /**
+     * Computes the depth of each symbol in the Huffman tree of its weights.
+     *
+     * @param weights weight of each symbol
+     * @return bit length of each symbol's code, 0 for unused symbols
+     */
+    private static int[] codeLengths(long[] weights)
+    {
+        int symbols = weights.length;
+        int[] lengths = new int[symbols];
+
+        //Tree nodes: the symbols first, then every merged pair
+        int[] parent = new int[2 * symbols];
+        PriorityQueue<long[]> queue = new PriorityQueue<long[]>((a, b) ->
+                a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for(int symbol = 0; symbol < symbols; symbol++)
+        {
+            if(weights[symbol] > 0)
+                queue.add(new long[] {weights[symbol], symbol});
+        }
+
+        //A single used symbol still needs one bit
+        if(queue.size() == 1)
+            lengths[(int) queue.peek()[1]] = 1;
+        if(queue.size() <= 1)
+            return lengths;
+
+        int next = symbols;
+        while(queue.size() > 1)
+        {
+            long[] first = queue.poll();
+            long[] second = queue.poll();
+            parent[(int) first[1]] = next;
+            parent[(int) second[1]] = next;
+            queue.add(new long[] {first[0] + second[0], next++});
+        }
+
+        //Depths from the root down, parents always numbered after their children
+        int root = next - 1;
+        int[] depth = new int[next];
+        for(int node = root - 1; node >= 0; node--)
+        {
+            if(node >= symbols || weights[node] > 0)
+                depth[node] = depth[parent[node]] + 1;
+        }
+        for(int symbol = 0; symbol < symbols; symbol++)
+            lengths[symbol] = weights[symbol] > 0 ? depth[symbol] : 0;
+        return lengths;
+    }
+
+    /**
+     * Get the bit length of each symbol's code.
+     *
+     * @return code lengths, 0 for unused symbols
+     */
+    public int[] getLengths() { return this.lengths.clone(); }
+
+    /**
+     * Counts the bits needed to encode a run of symbols.
+     *
+     * @param symbols the symbols to encode
+     * @return number of bits
+     */
+    public long bitCount(int[] symbols)
+    {
+        long bits = 0;
+        for(int symbol : symbols)
+            bits += lengths[symbol];
+        return bits;
+    }
+
+    /**
+     * Encodes a run of symbols, padding the last byte with zeros.
+     *
+     * @param symbols the symbols to encode
+     * @return the packed bits
+     * @throws IllegalArgumentException if a symbol has no code
+     */
+    public byte[] encode(int[] symbols)
+    {
+        byte[] out = new byte[(int) ((bitCount(symbols) + 7) / 8)];
+        int pos = 0;
+        long bits = 0;
+        int bitCount = 0;
+
+        for(int symbol : symbols)
+        {
+            if(lengths[symbol] == 0)
+                throw new IllegalArgumentException("Symbol " + symbol + " has no Huffman code!");
+            bits = (bits << lengths[symbol]) | codes[symbol];
+            bitCount += lengths[symbol];
+            while(bitCount >= 8)
+            {
+                bitCount -= 8;
+                out[pos++] = (byte) (bits >>> bitCount);
+            }
+        }
+        if(bitCount > 0)
+            out[pos] = (byte) (bits << (8 - bitCount));
+        return out;
+    }
+
+    /**
+     * Decodes a number of symbols from a buffer of packed bits.
+     *
+     * @param in buffer positioned at the first byte of the bits
+     * @param count number of symbols to decode
+     * @return the decoded symbols
+     * @throws IOException if the bits don't decode to count symbols
+     */
+    public int[] decode(ByteBuffer in, int count) throws IOException
+    {
+        int[] symbols = new int[count];
+        if(count == 0)
+            return symbols;
+        if(maxLength == 0)
+            throw new IOException("Huffman code has no symbols!");
+
+        //Every maxLength-bit prefix maps straight to its symbol and length
+        int[] table = new int[1 << maxLength];
+        for(int symbol = 0; symbol < lengths.length; symbol++)
+        {
+            if(lengths[symbol] > 0)
+            {
+                int shift = maxLength - lengths[symbol];
+                Arrays.fill(table, codes[symbol] << shift, (codes[symbol] + 1) << shift, (symbol << 5) | lengths[symbol]);
+            }
+        }
+
+        int mask = (1 << maxLength) - 1;
+        long bits = 0;
+        int bitCount = 0;
+        int padding = 0;
+        for(int i = 0; i < count; i++)
+        {
+            //Refills, past the end of the data with zeros
+            while(bitCount <= 56)
+            {
+                if(in.hasRemaining())
+                    bits = (bits << 8) | (in.get() & 0xFF);
+                else
+                {
+                    bits <<= 8;
+                    padding += 8;
+                }
+                bitCount += 8;
+            }
+
+            int entry = table[(int) (bits >>> (bitCount - maxLength)) & mask];
+            int length = entry & 31;
+            if(length == 0)
+                throw new IOException("Compressed file contains an invalid Huffman code!");
+            bitCount -= length;
+            symbols[i] = entry >>> 5;
+        }
+
+        //Error Check: Codes ran past the end of the data
+        if(bitCount < padding)
+            throw new IOException("Compressed file is missing Huffman coded values!");
+        return symbols;
+    }
+}
@@ -0,0 +1,193 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A quadtree laid out for drawing any part of its image at any scale.
+ *
+ * Nodes are stored in level order in primitive arrays: the four children
+ * of a split node are consecutive, starting at its firstChild index, and
+ * every node keeps one value, a leaf's pixel value or the rounded mean of
+ * a split node's region. Shared subtrees are laid out once per occurrence.
+ *
+ * Rendering walks only the nodes that overlap the viewport and stops at
+ * any node that covers a screen pixel or less, drawing its mean instead
+ * of its subtree. The number of blocks drawn is bounded by the viewport's
+ * pixel count, however large the image is.
+ */
+public class LodQuadTree
+{
+    /** firstChild value of a leaf */
+    private static final int LEAF = -1;
+
+    /**
+     * Receives the blocks of a rendered viewport.
+     */
+    public interface BlockSink
+    {
+        /**
+         * Fills one square block of the viewport.
+         *
+         * @param value the block's grayscale value
+         * @param x the block's left edge in viewport pixels
+         * @param y the block's top edge in viewport pixels
+         * @param size the block's side length in viewport pixels
+         */
+        void fill(int value, double x, double y, double size);
+    }
+
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** Index of each node's first child, LEAF for leaves */
+    private final int[] firstChild;
+
+    /** Each node's value: a leaf's pixel value or a split node's mean, unsigned */
+    private final byte[] values;
+
+    /**
+     * Construct a laid out tree.
+     *
+     * @param sideLength the side length of the image
+     * @param firstChild index of each node's first child, LEAF for leaves
+     * @param values each node's value
+     */
+    private LodQuadTree(int sideLength, int[] firstChild, byte[] values)
+    {
+        this.sideLength = sideLength;
+        this.firstChild = firstChild;
+        this.values = values;
+    }
+
+    /**
+     * Lays out a quadtree or DAG, computing the mean of every split node.
+     *
+     * @param root the root of the quadtree
+     * @param sideLength the side length of the image
+     * @return the laid out tree
+     */
+    public static LodQuadTree build(RITQTNode root, int sideLength)
+    {
+        //Level order: each split node's children are appended as it is reached
+        RITQTNode[] nodes = new RITQTNode[1024];
+        int[] firstChild = new int[1024];
+        byte[] depths = new byte[1024];
+        nodes[0] = root;
+        int count = 1;
+        for(int i = 0; i < count; i++)
+        {
+            RITQTNode node = nodes[i];
+            if(node.getUpperLeft() == null)
+            {
+                firstChild[i] = LEAF;
+                continue;
+            }
+
+            if(count + 4 > nodes.length)
+            {
+                int capacity = Math.max(nodes.length * 2, count + 4);
+                nodes = Arrays.copyOf(nodes, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+            firstChild[i] = count;
+            Arrays.fill(depths, count, count + 4, (byte) (depths[i] + 1));
+            nodes[count++] = node.getUpperLeft();
+            nodes[count++] = node.getUpperRight();
+            nodes[count++] = node.getLowerLeft();
+            nodes[count++] = node.getLowerRight();
+        }
+
+        //Sums bottom up, children always coming after their parent
+        long[] sums = new long[count];
+        byte[] values = new byte[count];
+        for(int i = count - 1; i >= 0; i--)
+        {
+            int size = sideLength >> depths[i];
+            if(firstChild[i] == LEAF)
+            {
+                sums[i] = (long) nodes[i].getVal() * size * size;
+                values[i] = (byte) nodes[i].getVal();
+            }
+            else
+            {
+                int child = firstChild[i];
+                sums[i] = sums[child] + sums[child + 1] + sums[child + 2] + sums[child + 3];
+                values[i] = (byte) QuadTreeCompressor.mean(sums[i], size);
+            }
+        }
+
+        return new LodQuadTree(sideLength, Arrays.copyOf(firstChild, count), values);
+    }
+
+    /**
+     * Get the side length of the image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get the number of nodes laid out.
+     *
+     * @return node count
+     */
+    public int getNodeCount() { return this.values.length; }
+
+    /**
+     * Draws the part of the image inside a viewport.
+     *
+     * @param viewX the image column at the viewport's left edge
+     * @param viewY the image row at the viewport's top edge
+     * @param scale viewport pixels per image pixel
+     * @param width the viewport's width in viewport pixels
+     * @param height the viewport's height in viewport pixels
+     * @param sink receives every block drawn
+     * @return number of blocks drawn
+     */
+    public int render(double viewX, double viewY, double scale, double width, double height, BlockSink sink)
+    {
+        return render(0, 0, 0, sideLength, viewX, viewY, scale, width, height, sink);
+    }
+
+    /**
+     * Draws the part of a node's region inside a viewport.
+     *
+     * @param node the node's index
+     * @param row the row of the region's top edge
+     * @param col the column of the region's left edge
+     * @param size the side length of the region
+     * @param viewX the image column at the viewport's left edge
+     * @param viewY the image row at the viewport's top edge
+     * @param scale viewport pixels per image pixel
+     * @param width the viewport's width in viewport pixels
+     * @param height the viewport's height in viewport pixels
+     * @param sink receives every block drawn
+     * @return number of blocks drawn
+     */
+    private int render(int node, int row, int col, int size, double viewX, double viewY, double scale,
+                       double width, double height, BlockSink sink)
+    {
+        //Base case: Region lies outside the viewport
+        double x = (col - viewX) * scale;
+        double y = (row - viewY) * scale;
+        double screenSize = size * scale;
+        if(x >= width || y >= height || x + screenSize <= 0 || y + screenSize <= 0)
+            return 0;
+
+        //Base case: A leaf, or a region no bigger than a viewport pixel, is drawn as one block
+        if(firstChild[node] == LEAF || screenSize <= 1)
+        {
+            sink.fill(values[node] & 0xFF, x, y, screenSize);
+            return 1;
+        }
+
+        //Recursive case: Draws the four quadrants
+        int child = firstChild[node];
+        int half = size/2;
+        return render(child, row, col, half, viewX, viewY, scale, width, height, sink)
+                + render(child + 1, row, col + half, half, viewX, viewY, scale, width, height, sink)
+                + render(child + 2, row + half, col, half, viewX, viewY, scale, width, height, sink)
+                + render(child + 3, row + half, col + half, half, viewX, viewY, scale, width, height, sink);
+    }
+}
@@ -0,0 +1,242 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Converts a 2D image array into a quadtree using a fork/join pool.
+ *
+ * Regions larger than the sequential cutoff are split into four tasks,
+ * one per quadrant. Regions at or below the cutoff are compressed on a
+ * single thread by a QuadTreeCompressor. Each task reports the pixel stats
+ * of a combinable region, so the resulting tree is identical to the one
+ * built sequentially, with or without a tolerance.
+ */
+public class ParallelCompressor implements AutoCloseable
+{
+    /** Default side length at or below which regions are compressed sequentially */
+    public static final int DEFAULT_CUTOFF = 64;
+
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Pool the compression tasks run on */
+    private final ForkJoinPool pool;
+
+    /** Side length at or below which regions are compressed sequentially */
+    private final int cutoff;
+
+    /** Largest allowed difference between pixels of a combined region */
+    private final int tolerance;
+
+    /**
+     * Construct a lossless compressor with its own pool.
+     *
+     * @param parallelism number of worker threads
+     * @param cutoff side length at or below which regions are compressed sequentially
+     */
+    public ParallelCompressor(int parallelism, int cutoff)
+    {
+        this(parallelism, cutoff, 0);
+    }
+
+    /**
+     * Construct a compressor with its own pool.
+     *
+     * @param parallelism number of worker threads
+     * @param cutoff side length at or below which regions are compressed sequentially
+     * @param tolerance largest allowed difference between pixels of a combined region
+     */
+    public ParallelCompressor(int parallelism, int cutoff, int tolerance)
+    {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        if(cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be at least 1");
+        if(tolerance < 0)
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        this.pool = new ForkJoinPool(parallelism);
+        this.cutoff = cutoff;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Construct a compressor using every available processor
+     * and the default cutoff.
+     */
+    public ParallelCompressor()
+    {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the pool's parallelism
+     */
+    public int getParallelism() { return this.pool.getParallelism(); }
+
+    /**
+     * Get the sequential cutoff.
+     *
+     * @return side length at or below which regions are compressed sequentially
+     */
+    public int getCutoff() { return this.cutoff; }
+
+    /**
+     * Assuming this quadtree is the root,
+     * this 2D image array is converted to a quadtree representation
+     *
+     * @param image the 2D image array to read from
+     * @param sideLength the side length of the image
+     * @return the quadtree representation of this image
+     */
+    public RITQTNode compress(int[][] image, int sideLength)
+    {
+        return pool.invoke(new CompressTask(image, 0, 0, sideLength, cutoff, tolerance)).node;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * The quadtree of a region, plus the pixel stats of the region
+     * if it became a single leaf.
+     */
+    private static class Region
+    {
+        /** The region's quadtree */
+        private final RITQTNode node;
+
+        /** Whether or not the region became a single leaf */
+        private final boolean combined;
+
+        /** Smallest pixel of a combined region */
+        private final int min;
+
+        /** Largest pixel of a combined region */
+        private final int max;
+
+        /** Sum of the pixels of a combined region */
+        private final long sum;
+
+        /**
+         * Construct a region's result.
+         *
+         * @param node the region's quadtree
+         * @param combined whether or not the region became a single leaf
+         * @param min smallest pixel of a combined region
+         * @param max largest pixel of a combined region
+         * @param sum sum of the pixels of a combined region
+         */
+        Region(RITQTNode node, boolean combined, int min, int max, long sum)
+        {
+            this.node = node;
+            this.combined = combined;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+        }
+    }
+
+    /**
+     * Compresses one region of the image, forking one subtask per
+     * quadrant while the region is larger than the cutoff.
+     */
+    private static class CompressTask extends RecursiveTask<Region>
+    {
+        /** The image being compressed */
+        private final int[][] image;
+
+        /** The row component of the region's starting coordinates */
+        private final int rowStart;
+
+        /** The col component of the region's starting coordinates */
+        private final int colStart;
+
+        /** The side length of the region */
+        private final int sideLength;
+
+        /** Side length at or below which regions are compressed sequentially */
+        private final int cutoff;
+
+        /** Largest allowed difference between pixels of a combined region */
+        private final int tolerance;
+
+        /**
+         * Construct a task for one region of the image.
+         *
+         * @param image the image being compressed
+         * @param rowStart the row component of the region's starting coordinates
+         * @param colStart the col component of the region's starting coordinates
+         * @param sideLength the side length of the region
+         * @param cutoff side length at or below which regions are compressed sequentially
+         * @param tolerance largest allowed difference between pixels of a combined region
+         */
+        CompressTask(int[][] image, int rowStart, int colStart, int sideLength, int cutoff, int tolerance)
+        {
+            this.image = image;
+            this.rowStart = rowStart;
+            this.colStart = colStart;
+            this.sideLength = sideLength;
+            this.cutoff = cutoff;
+            this.tolerance = tolerance;
+        }
+
+        /**
+         * Construct a task for one quadrant of this task's region.
+         *
+         * @param rowOffset 0 for an upper quadrant, 1 for a lower one
+         * @param colOffset 0 for a left quadrant, 1 for a right one
+         * @return the quadrant's task
+         */
+        private CompressTask quadrant(int rowOffset, int colOffset)
+        {
+            int childLength = sideLength/2;
+            return new CompressTask(image, rowStart + rowOffset * childLength, colStart + colOffset * childLength,
+                    childLength, cutoff, tolerance);
+        }
+
+        @Override
+        protected Region compute()
+        {
+            //Base case: Small regions are compressed on this thread
+            if(sideLength <= cutoff)
+            {
+                QuadTreeCompressor compressor = new QuadTreeCompressor(image, tolerance);
+                RITQTNode node = compressor.compress(rowStart, colStart, sideLength);
+                boolean combined = node.getUpperLeft() == null && node.getVal() != SPLIT_VALUE;
+                return new Region(node, combined, compressor.getLastMin(), compressor.getLastMax(), compressor.getLastSum());
+            }
+
+            //Recursive case: Forks three quadrants and computes the first here
+            CompressTask ur = quadrant(0, 1);
+            CompressTask ll = quadrant(1, 0);
+            CompressTask lr = quadrant(1, 1);
+            ur.fork();
+            ll.fork();
+            lr.fork();
+            Region ulRegion = quadrant(0, 0).compute();
+            Region lrRegion = lr.join();
+            Region llRegion = ll.join();
+            Region urRegion = ur.join();
+
+            //Case 1: The four quadrants combine into one color
+            if(ulRegion.combined && urRegion.combined && llRegion.combined && lrRegion.combined)
+            {
+                int min = Math.min(Math.min(ulRegion.min, urRegion.min), Math.min(llRegion.min, lrRegion.min));
+                int max = Math.max(Math.max(ulRegion.max, urRegion.max), Math.max(llRegion.max, lrRegion.max));
+                long sum = ulRegion.sum + urRegion.sum + llRegion.sum + lrRegion.sum;
+                if(max - min <= tolerance)
+                    return new Region(new RITQTNode(QuadTreeCompressor.mean(sum, sideLength)), true, min, max, sum);
+            }
+
+            //Case 2: The quadrants differ, return the split node
+            RITQTNode node = new RITQTNode(SPLIT_VALUE, ulRegion.node, urRegion.node, llRegion.node, lrRegion.node);
+            return new Region(node, false, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts a quadtree into a flat, row-major grayscale pixel buffer
+ * using a fork/join pool.
+ *
+ * Subtrees covering regions larger than the sequential cutoff are split
+ * into one task per quadrant. Leaves fill their rows with Arrays.fill.
+ * One byte per pixel takes a quarter of the memory of an int[][] image.
+ */
+public class ParallelDecompressor implements AutoCloseable
+{
+    /** Default side length at or below which subtrees are filled sequentially */
+    public static final int DEFAULT_CUTOFF = 64;
+
+    /** Pool the fill tasks run on */
+    private final ForkJoinPool pool;
+
+    /** Side length at or below which subtrees are filled sequentially */
+    private final int cutoff;
+
+    /**
+     * Construct a decompressor with its own pool.
+     *
+     * @param parallelism number of worker threads
+     * @param cutoff side length at or below which subtrees are filled sequentially
+     */
+    public ParallelDecompressor(int parallelism, int cutoff)
+    {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        if(cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be at least 1");
+        this.pool = new ForkJoinPool(parallelism);
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Construct a decompressor using every available processor
+     * and the default cutoff.
+     */
+    public ParallelDecompressor()
+    {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Converts a quadtree into a row-major pixel buffer.
+     *
+     * @param root the root of the quadtree
+     * @param sideLength the side length of the image
+     * @return the pixels, row by row, one byte each
+     */
+    public byte[] uncompress(RITQTNode root, int sideLength)
+    {
+        byte[] pixels = new byte[sideLength * sideLength];
+        pool.invoke(new FillTask(root, pixels, sideLength, 0, 0, sideLength, cutoff));
+        return pixels;
+    }
+
+    /**
+     * Fills the region of a subtree on the current thread.
+     *
+     * @param node the root of the subtree
+     * @param pixels the row-major pixel buffer
+     * @param stride the side length of the whole image
+     * @param rowStart the row component of the subtree's starting coordinates
+     * @param colStart the col component of the subtree's starting coordinates
+     * @param sideLength the side length of the subtree
+     */
+    public static void fill(RITQTNode node, byte[] pixels, int stride, int rowStart, int colStart, int sideLength)
+    {
+        //Base case: Leaf fills each of its rows
+        if(node.getUpperLeft() == null)
+        {
+            byte val = (byte) node.getVal();
+            for(int row = rowStart; row < rowStart + sideLength; row++)
+            {
+                int offset = row * stride + colStart;
+                Arrays.fill(pixels, offset, offset + sideLength, val);
+            }
+            return;
+        }
+
+        //Recursive case: Fills each quadrant
+        int childLength = sideLength/2;
+        fill(node.getUpperLeft(), pixels, stride, rowStart, colStart, childLength);
+        fill(node.getUpperRight(), pixels, stride, rowStart, colStart + childLength, childLength);
+        fill(node.getLowerLeft(), pixels, stride, rowStart + childLength, colStart, childLength);
+        fill(node.getLowerRight(), pixels, stride, rowStart + childLength, colStart + childLength, childLength);
+    }
+
+    @Override
+    public void close()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Fills the region of one subtree, forking one subtask per quadrant
+     * while the region is larger than the cutoff.
+     */
+    private static class FillTask extends RecursiveAction
+    {
+        /** The root of the subtree */
+        private final RITQTNode node;
+
+        /** The row-major pixel buffer */
+        private final byte[] pixels;
+
+        /** The side length of the whole image */
+        private final int stride;
+
+        /** The row component of the subtree's starting coordinates */
+        private final int rowStart;
+
+        /** The col component of the subtree's starting coordinates */
+        private final int colStart;
+
+        /** The side length of the subtree */
+        private final int sideLength;
+
+        /** Side length at or below which subtrees are filled sequentially */
+        private final int cutoff;
+
+        /**
+         * Construct a task for one subtree.
+         *
+         * @param node the root of the subtree
+         * @param pixels the row-major pixel buffer
+         * @param stride the side length of the whole image
+         * @param rowStart the row component of the subtree's starting coordinates
+         * @param colStart the col component of the subtree's starting coordinates
+         * @param sideLength the side length of the subtree
+         * @param cutoff side length at or below which subtrees are filled sequentially
+         */
+        FillTask(RITQTNode node, byte[] pixels, int stride, int rowStart, int colStart, int sideLength, int cutoff)
+        {
+            this.node = node;
+            this.pixels = pixels;
+            this.stride = stride;
+            this.rowStart = rowStart;
+            this.colStart = colStart;
+            this.sideLength = sideLength;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute()
+        {
+            //Base case: Small subtrees and leaves are filled on this thread
+            if(sideLength <= cutoff || node.getUpperLeft() == null)
+            {
+                fill(node, pixels, stride, rowStart, colStart, sideLength);
+                return;
+            }
+
+            //Recursive case: One task per quadrant
+            int childLength = sideLength/2;
+            invokeAll(new FillTask(node.getUpperLeft(), pixels, stride, rowStart, colStart, childLength, cutoff),
+                    new FillTask(node.getUpperRight(), pixels, stride, rowStart, colStart + childLength, childLength, cutoff),
+                    new FillTask(node.getLowerLeft(), pixels, stride, rowStart + childLength, colStart, childLength, cutoff),
+                    new FillTask(node.getLowerRight(), pixels, stride, rowStart + childLength, colStart + childLength, childLength, cutoff));
+        }
+    }
+}
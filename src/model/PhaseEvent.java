@@ -0,0 +1,59 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for one phase of a conversion, such as reading
+ * the input, building the quadtree or writing the output.
+ *
+ * Events are only recorded while a recording is running, for example one
+ * started with jcmd PID JFR.start, and cost next to nothing otherwise.
+ * The event's duration is the phase's run time.
+ */
+@Name("rit.Phase")
+@Label("RIT Codec Phase")
+@Category({"RIT", "Codec"})
+@Description("One phase of compressing, uncompressing or viewing an image")
+public class PhaseEvent extends Event
+{
+    /** The program running the conversion */
+    @Label("Tool")
+    String tool;
+
+    /** The phase's name */
+    @Label("Phase")
+    String phase;
+
+    /** The file being converted */
+    @Label("File")
+    String file;
+
+    /** Bytes read during the phase */
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    /** Bytes written during the phase */
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    /** Values read or written during the phase */
+    @Label("Token Count")
+    long tokenCount;
+
+    /** Quadtree nodes built or walked during the phase */
+    @Label("Node Count")
+    long nodeCount;
+
+    /** Bytes allocated by the phase's thread */
+    @Label("Allocated")
+    @Description("Bytes allocated on the thread running the phase, helper threads excluded")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,246 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The timings of the phases of one conversion.
+ *
+ * Each phase is committed as a PhaseEvent, so a running Flight Recorder
+ * recording sees every phase without any option being given, and is
+ * kept so it can be printed as a table or as JSON afterwards.
+ *
+ * Allocation is measured on the thread that runs the phase, so work
+ * handed to other threads (a parallel compressor's pool) isn't counted.
+ * Counts a phase doesn't measure are 0.
+ */
+public class PhaseStats
+{
+    /** The JVM's per-thread allocation counters, null if unavailable */
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationCounters();
+
+    /** The program running the conversion */
+    private final String tool;
+
+    /** The file being converted */
+    private final String file;
+
+    /** The phases ended so far, in order */
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    /**
+     * One timed phase, started by begin and ended by end.
+     */
+    public class Phase
+    {
+        /** The phase's event, begun when the phase starts */
+        private final PhaseEvent event = new PhaseEvent();
+
+        /** The phase's name */
+        private final String name;
+
+        /** Start time in nanoseconds */
+        private final long start;
+
+        /** Bytes the thread had allocated when the phase started */
+        private final long startAllocated;
+
+        /** Run time in nanoseconds, once ended */
+        private long duration;
+
+        /** Bytes read, bytes written, values and nodes handled, bytes allocated */
+        private long bytesIn, bytesOut, tokenCount, nodeCount, allocated;
+
+        /**
+         * Starts a phase.
+         *
+         * @param name the phase's name
+         */
+        private Phase(String name)
+        {
+            this.name = name;
+            this.startAllocated = allocatedBytes();
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Ends the phase, records it and commits its event.
+         *
+         * @param bytesIn bytes read during the phase
+         * @param bytesOut bytes written during the phase
+         * @param tokenCount values read or written during the phase
+         * @param nodeCount quadtree nodes built or walked during the phase
+         */
+        public void end(long bytesIn, long bytesOut, long tokenCount, long nodeCount)
+        {
+            this.duration = System.nanoTime() - start;
+            event.end();
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.tokenCount = tokenCount;
+            this.nodeCount = nodeCount;
+            this.allocated = Math.max(allocatedBytes() - startAllocated, 0);
+            phases.add(this);
+
+            if(event.shouldCommit())
+            {
+                event.tool = tool;
+                event.phase = name;
+                event.file = file;
+                event.bytesIn = bytesIn;
+                event.bytesOut = bytesOut;
+                event.tokenCount = tokenCount;
+                event.nodeCount = nodeCount;
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+
+        /**
+         * Get the phase's name.
+         *
+         * @return the name
+         */
+        public String getName() { return this.name; }
+
+        /**
+         * Get the phase's run time.
+         *
+         * @return run time in nanoseconds
+         */
+        public long getDuration() { return this.duration; }
+
+        /**
+         * Get the bytes the phase's thread allocated.
+         *
+         * @return allocated bytes, 0 if the JVM cannot tell
+         */
+        public long getAllocated() { return this.allocated; }
+    }
+
+    /**
+     * Construct the timings of a conversion.
+     *
+     * @param tool the program running the conversion
+     * @param file the file being converted
+     */
+    public PhaseStats(String tool, String file)
+    {
+        this.tool = tool;
+        this.file = file;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param name the phase's name
+     * @return the running phase, to be ended once it is done
+     */
+    public Phase begin(String name)
+    {
+        return new Phase(name);
+    }
+
+    /**
+     * Get the phases ended so far.
+     *
+     * @return the phases, in the order they ended
+     */
+    public List<Phase> getPhases() { return this.phases; }
+
+    /**
+     * Gets the JVM's per-thread allocation counters, if it has them.
+     *
+     * @return the counters, or null
+     */
+    private static com.sun.management.ThreadMXBean allocationCounters()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+            return (com.sun.management.ThreadMXBean) threads;
+        return null;
+    }
+
+    /**
+     * Gets the bytes the current thread has allocated so far.
+     *
+     * @return allocated bytes, 0 if the JVM cannot tell
+     */
+    private static long allocatedBytes()
+    {
+        if(ALLOCATION == null || !ALLOCATION.isThreadAllocatedMemoryEnabled())
+            return 0;
+        return Math.max(ALLOCATION.getCurrentThreadAllocatedBytes(), 0);
+    }
+
+    /**
+     * Formats the phases as a table, one phase per line.
+     *
+     * @return the table, without a trailing newline
+     */
+    public String toText()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-10s %10s %12s %12s %10s %10s %12s",
+                "Phase", "Time (ms)", "Bytes in", "Bytes out", "Tokens", "Nodes", "Allocated"));
+        long total = 0;
+        for(Phase phase : phases)
+        {
+            builder.append(String.format("%n%-10s %10.3f %12d %12d %10d %10d %12d", phase.name, phase.duration / 1e6,
+                    phase.bytesIn, phase.bytesOut, phase.tokenCount, phase.nodeCount, phase.allocated));
+            total += phase.duration;
+        }
+        builder.append(String.format("%n%-10s %10.3f", "total", total / 1e6));
+        return builder.toString();
+    }
+
+    /**
+     * Formats the conversion and its phases as a JSON object.
+     *
+     * @return the JSON text, on one line
+     */
+    public String toJson()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"tool\":").append(quote(tool)).append(",\"file\":").append(quote(file)).append(",\"phases\":[");
+        for(int i = 0; i < phases.size(); i++)
+        {
+            Phase phase = phases.get(i);
+            builder.append(i == 0 ? "" : ",")
+                    .append("{\"phase\":").append(quote(phase.name))
+                    .append(",\"durationNanos\":").append(phase.duration)
+                    .append(",\"bytesIn\":").append(phase.bytesIn)
+                    .append(",\"bytesOut\":").append(phase.bytesOut)
+                    .append(",\"tokenCount\":").append(phase.tokenCount)
+                    .append(",\"nodeCount\":").append(phase.nodeCount)
+                    .append(",\"allocatedBytes\":").append(phase.allocated)
+                    .append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * Quotes a string as a JSON string.
+     *
+     * @param text the string to quote
+     * @return the quoted string
+     */
+    private static String quote(String text)
+    {
+        StringBuilder builder = new StringBuilder("\"");
+        for(char c : text.toCharArray())
+        {
+            if(c == '"' || c == '\\')
+                builder.append('\\').append(c);
+            else if(c < 0x20)
+                builder.append(String.format("\\u%04x", (int) c));
+            else
+                builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+}
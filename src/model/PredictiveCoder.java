@@ -0,0 +1,204 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Converts quadtrees to and from predictive (.ritr) tokens.
+ *
+ * Each node is predicted by the rounded mean of its parent's region (128
+ * for the root) and only the difference is stored. Leaves are written as
+ * their residual and interior nodes as -1 followed by the residual of their
+ * own mean, which in turn predicts their children. Residuals are zigzag
+ * coded (0, -1, 1, -2, ... become 0, 1, 2, 3, ...) so every token but the
+ * split marker is non-negative, and the small residuals of smooth images
+ * become small tokens that an entropy stage codes in a few bits.
+ *
+ * Tokens are in preorder, so the layout is the .rit one with values
+ * replaced by residuals and a mean after every split.
+ */
+public class PredictiveCoder
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Prediction of the root's value */
+    private static final int ROOT_PREDICTION = 128;
+
+    /** Pixel sum of each region, in preorder */
+    private long[] sums = new long[64];
+
+    /** Number of regions summed */
+    private int sumCount = 0;
+
+    /** The tokens written so far */
+    private int[] tokens = new int[64];
+
+    /** Number of tokens written */
+    private int tokenCount = 0;
+
+    /** Preorder index of the next node to write */
+    private int next = 0;
+
+    private PredictiveCoder() {}
+
+    /**
+     * Zigzag codes a residual so small magnitudes become small tokens.
+     *
+     * @param residual the residual
+     * @return the non-negative token
+     */
+    public static int zigzag(int residual)
+    {
+        return residual >= 0 ? 2 * residual : -2 * residual - 1;
+    }
+
+    /**
+     * Reverses zigzag coding.
+     *
+     * @param token the non-negative token
+     * @return the residual
+     */
+    public static int unzigzag(int token)
+    {
+        return (token & 1) == 0 ? token >>> 1 : -((token + 1) >>> 1);
+    }
+
+    /**
+     * Converts a quadtree into predictive tokens.
+     *
+     * @param root the root of the quadtree
+     * @param sideLength the side length of the image
+     * @return the tokens in preorder
+     * @throws IllegalArgumentException if a leaf isn't a valid pixel value
+     */
+    public static int[] encode(RITQTNode root, int sideLength)
+    {
+        PredictiveCoder coder = new PredictiveCoder();
+        coder.sum(root, sideLength);
+        coder.write(root, sideLength, ROOT_PREDICTION);
+        return Arrays.copyOf(coder.tokens, coder.tokenCount);
+    }
+
+    /**
+     * Sums the pixels of every region of a subtree, in preorder.
+     *
+     * @param node the root of the subtree
+     * @param sideLength the side length of its region
+     * @return the pixel sum of its region
+     */
+    private long sum(RITQTNode node, int sideLength)
+    {
+        if(sumCount == sums.length)
+            sums = Arrays.copyOf(sums, sumCount * 2);
+        int index = sumCount++;
+
+        //Base case: A leaf covers its whole region with one value
+        if(node.getUpperLeft() == null)
+        {
+            if(node.getVal() < 0 || node.getVal() > 255)
+                throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+            sums[index] = (long) node.getVal() * sideLength * sideLength;
+            return sums[index];
+        }
+
+        //Recursive case: The four quadrants' sums
+        int childLength = sideLength/2;
+        long sum = sum(node.getUpperLeft(), childLength) + sum(node.getUpperRight(), childLength)
+                + sum(node.getLowerLeft(), childLength) + sum(node.getLowerRight(), childLength);
+        sums[index] = sum;
+        return sum;
+    }
+
+    /**
+     * Writes the tokens of a subtree.
+     *
+     * @param node the root of the subtree
+     * @param sideLength the side length of its region
+     * @param prediction the mean of its parent's region
+     */
+    private void write(RITQTNode node, int sideLength, int prediction)
+    {
+        int index = next++;
+        if(node.getUpperLeft() == null)
+        {
+            add(zigzag(node.getVal() - prediction));
+            return;
+        }
+
+        int mean = QuadTreeCompressor.mean(sums[index], sideLength);
+        add(SPLIT_VALUE);
+        add(zigzag(mean - prediction));
+        int childLength = sideLength/2;
+        write(node.getUpperLeft(), childLength, mean);
+        write(node.getUpperRight(), childLength, mean);
+        write(node.getLowerLeft(), childLength, mean);
+        write(node.getLowerRight(), childLength, mean);
+    }
+
+    /**
+     * Appends a token.
+     *
+     * @param token the token to append
+     */
+    private void add(int token)
+    {
+        if(tokenCount == tokens.length)
+            tokens = Arrays.copyOf(tokens, tokenCount * 2);
+        tokens[tokenCount++] = token;
+    }
+
+    /**
+     * Given predictive tokens, creates the quadtree they describe.
+     *
+     * @param values the tokens, positioned at the root's first token
+     * @return the root of the quadtree
+     * @throws IllegalArgumentException if a token or a predicted value is invalid
+     * @throws java.util.NoSuchElementException if the tokens end before the tree does
+     */
+    public static RITQTNode decode(TokenCursor values)
+    {
+        return decode(values, ROOT_PREDICTION);
+    }
+
+    /**
+     * Creates the subtree of a node's predictive tokens.
+     *
+     * @param values the tokens, positioned at this node's first token
+     * @param prediction the mean of its parent's region
+     * @return the subtree's node
+     */
+    private static RITQTNode decode(TokenCursor values, int prediction)
+    {
+        int token = values.next();
+        if(token < SPLIT_VALUE)
+            throw new IllegalArgumentException("Quadtree contains an invalid residual!");
+
+        //Interior node: its mean predicts its children
+        if(token == SPLIT_VALUE)
+        {
+            int mean = predicted(prediction, values.next());
+            return new RITQTNode(SPLIT_VALUE, decode(values, mean), decode(values, mean),
+                    decode(values, mean), decode(values, mean));
+        }
+
+        return new RITQTNode(predicted(prediction, token));
+    }
+
+    /**
+     * Adds a residual to its prediction.
+     *
+     * @param prediction the predicted value
+     * @param token the zigzag coded residual
+     * @return the value
+     * @throws IllegalArgumentException if the value isn't a valid pixel value
+     */
+    private static int predicted(int prediction, int token)
+    {
+        if(token < 0)
+            throw new IllegalArgumentException("Quadtree contains an invalid residual!");
+        int val = prediction + unzigzag(token);
+        if(val < 0 || val > 255)
+            throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+        return val;
+    }
+}
@@ -0,0 +1,120 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Decodes a level-order (.ritp) quadtree token stream coarse to fine.
+ *
+ * A .ritp file stores the tree breadth first, one level after another, and
+ * every interior node carries the rounded mean of its region, written as
+ * -1 - mean (so -1 to -256). Leaves are written as their value (0-255).
+ * After each level the whole image can therefore be drawn: leaves at their
+ * final value and unfinished regions as flat blocks of their mean. Each
+ * level refines the blocks of the previous one to half their size.
+ *
+ * Only the regions of the current and the next level are kept, as (row, col)
+ * pairs, since every region of a level has the same side length.
+ */
+public class ProgressiveDecoder
+{
+    /** Largest value an interior token can have */
+    private static final int SPLIT_VALUE = -1;
+
+    /**
+     * Receives the image after each level of the tree is decoded.
+     */
+    public interface LevelSink
+    {
+        /**
+         * Accepts the image as of the end of one level.
+         *
+         * @param pixels row-major pixels of the whole image, one byte each,
+         *               reused for the next level
+         * @param level depth of the decoded level, the root being level 0
+         * @param blockSize side length of the regions of that level
+         */
+        void accept(byte[] pixels, int level, int blockSize);
+    }
+
+    /**
+     * Encodes the mean of an interior node as a .ritp token.
+     *
+     * @param mean the rounded mean of the node's region (0-255)
+     * @return the node's token
+     */
+    public static int splitToken(int mean)
+    {
+        return SPLIT_VALUE - mean;
+    }
+
+    /**
+     * Decodes a level-order token stream, positioned at the root's value.
+     * Tokens after the end of the tree are left unread.
+     *
+     * @param tokens the token stream
+     * @param sideLength the side length of the image
+     * @param sink receives the image after each level, may be null
+     * @return the decoded pixels, row by row, one byte each
+     * @throws IllegalArgumentException if a value is invalid or the tree is too deep
+     * @throws NumberFormatException if a token isn't an integer
+     * @throws java.util.NoSuchElementException if the stream ends before the tree does
+     */
+    public static byte[] decode(TokenReader tokens, int sideLength, LevelSink sink)
+    {
+        byte[] pixels = new byte[sideLength * sideLength];
+
+        //Regions of the current and the next level as (row, col) pairs
+        int[] level = new int[8];
+        int levelCount = 1;
+        int[] next = new int[8];
+        int depth = 0;
+
+        for(int size = sideLength; levelCount > 0; size /= 2)
+        {
+            int nextCount = 0;
+            for(int region = 0; region < levelCount; region++)
+            {
+                int rowStart = level[2 * region];
+                int colStart = level[2 * region + 1];
+                int val = tokens.nextInt();
+
+                //Split region: shown as its mean, its quadrants join the next level
+                if(val < 0)
+                {
+                    val = SPLIT_VALUE - val;
+                    if(size == 1)
+                        throw new IllegalArgumentException("Quadtree is deeper than the image!");
+                    if(nextCount + 4 > next.length / 2)
+                        next = Arrays.copyOf(next, next.length * 2);
+                    int childLength = size / 2;
+                    for(int quadrant = 0; quadrant < 4; quadrant++)
+                    {
+                        next[2 * nextCount] = rowStart + (quadrant / 2) * childLength;
+                        next[2 * nextCount + 1] = colStart + (quadrant % 2) * childLength;
+                        nextCount++;
+                    }
+                }
+                if(val > 255)
+                    throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+
+                for(int row = rowStart; row < rowStart + size; row++)
+                {
+                    int offset = row * sideLength + colStart;
+                    Arrays.fill(pixels, offset, offset + size, (byte) val);
+                }
+            }
+
+            if(sink != null)
+                sink.accept(pixels, depth, size);
+            depth++;
+
+            //The next level becomes the current one
+            int[] swap = level;
+            level = next;
+            next = swap;
+            levelCount = nextCount;
+        }
+
+        return pixels;
+    }
+}
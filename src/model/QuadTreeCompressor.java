@@ -0,0 +1,237 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Converts a 2D image array into a quadtree in a single bottom-up pass.
+ *
+ * Each region is first summarized without creating any nodes: a region
+ * whose pixels can be combined is reported as its value, and only regions
+ * that must be split create nodes. Nodes are therefore allocated for the
+ * final tree only, instead of one per pixel.
+ *
+ * By default a region is combined only when all of its pixels hold the
+ * same value. With a tolerance T, a region whose largest and smallest
+ * pixels differ by at most T is combined into its (rounded) mean, so every
+ * pixel is off by at most T.
+ *
+ * Nodes built for split regions wait on an explicit stack until their
+ * parent is built. A compressor isn't thread safe.
+ */
+public class QuadTreeCompressor
+{
+    /** Summary of a region that must be split */
+    private static final int SPLIT_VALUE = -1;
+
+    /** The image being compressed */
+    private final int[][] image;
+
+    /** Largest allowed difference between pixels of a combined region */
+    private final int tolerance;
+
+    /** Nodes of split regions waiting for their parent */
+    private RITQTNode[] pending = new RITQTNode[64];
+
+    /** Number of waiting nodes */
+    private int pendingCount = 0;
+
+    /** Smallest pixel of the last summarized region */
+    private int lastMin;
+
+    /** Largest pixel of the last summarized region */
+    private int lastMax;
+
+    /** Sum of the pixels of the last summarized region */
+    private long lastSum;
+
+    /**
+     * Construct a lossless compressor for an image.
+     *
+     * @param image the 2D image array to compress
+     */
+    public QuadTreeCompressor(int[][] image)
+    {
+        this(image, 0);
+    }
+
+    /**
+     * Construct a compressor for an image.
+     *
+     * @param image the 2D image array to compress
+     * @param tolerance largest allowed difference between pixels of a combined region
+     */
+    public QuadTreeCompressor(int[][] image, int tolerance)
+    {
+        if(tolerance < 0)
+            throw new IllegalArgumentException("Tolerance must not be negative");
+        this.image = image;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Converts a region of the image into a quadtree.
+     *
+     * @param rowStart the row component of the region's starting coordinates
+     * @param colStart the col component of the region's starting coordinates
+     * @param sideLength the side length of the region
+     * @return a quadtree representation of the region
+     */
+    public RITQTNode compress(int rowStart, int colStart, int sideLength)
+    {
+        int summary = summarize(rowStart, colStart, sideLength);
+        return summary == SPLIT_VALUE ? pop() : new RITQTNode(summary);
+    }
+
+    /**
+     * Get the smallest pixel of the last compressed region.
+     * Only meaningful if that region became a leaf.
+     *
+     * @return smallest pixel value
+     */
+    int getLastMin() { return this.lastMin; }
+
+    /**
+     * Get the largest pixel of the last compressed region.
+     * Only meaningful if that region became a leaf.
+     *
+     * @return largest pixel value
+     */
+    int getLastMax() { return this.lastMax; }
+
+    /**
+     * Get the sum of the pixels of the last compressed region.
+     * Only meaningful if that region became a leaf.
+     *
+     * @return sum of the pixel values
+     */
+    long getLastSum() { return this.lastSum; }
+
+    /**
+     * Checks whether or not a region's pixels are close enough to combine.
+     *
+     * @param min smallest pixel of the region
+     * @param max largest pixel of the region
+     * @return true if the region can become a single leaf
+     */
+    boolean combinable(int min, int max)
+    {
+        return max - min <= tolerance;
+    }
+
+    /**
+     * Get the leaf value of a combined region, the rounded mean of its pixels.
+     *
+     * @param sum sum of the region's pixels
+     * @param sideLength the side length of the region
+     * @return the region's value
+     */
+    static int mean(long sum, int sideLength)
+    {
+        long area = (long) sideLength * sideLength;
+        return (int) Math.floorDiv(sum + area / 2, area);
+    }
+
+    /**
+     * Summarizes a region of the image. A combinable region is reported by
+     * its value and creates no nodes; its min, max and sum are left in the
+     * last* fields. Any other region builds its node, leaves it on the
+     * pending stack and is reported as split.
+     *
+     * @param rowStart the row component of the region's starting coordinates
+     * @param colStart the col component of the region's starting coordinates
+     * @param sideLength the side length of the region
+     * @return the region's value, or -1 if the region is split
+     */
+    private int summarize(int rowStart, int colStart, int sideLength)
+    {
+        //Base case: A single pixel, a -1 pixel can never be combined
+        if(sideLength == 1)
+        {
+            int val = image[rowStart][colStart];
+            if(val != SPLIT_VALUE)
+            {
+                lastMin = val;
+                lastMax = val;
+                lastSum = val;
+                return val;
+            }
+            push(new RITQTNode(val));
+            return SPLIT_VALUE;
+        }
+
+        //Recursive case: Summarizes the four quadrants, folding their pixel stats
+        int childLength = sideLength/2;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+
+        int ul = summarize(rowStart, colStart, childLength);
+        min = Math.min(min, lastMin);
+        max = Math.max(max, lastMax);
+        sum += lastSum;
+        int ur = summarize(rowStart, colStart + childLength, childLength);
+        min = Math.min(min, lastMin);
+        max = Math.max(max, lastMax);
+        sum += lastSum;
+        int ll = summarize(rowStart + childLength, colStart, childLength);
+        min = Math.min(min, lastMin);
+        max = Math.max(max, lastMax);
+        sum += lastSum;
+        int lr = summarize(rowStart + childLength, colStart + childLength, childLength);
+        min = Math.min(min, lastMin);
+        max = Math.max(max, lastMax);
+        sum += lastSum;
+
+        //Case 1: The four quadrants combine into one color, nothing to build
+        if(ul != SPLIT_VALUE && ur != SPLIT_VALUE && ll != SPLIT_VALUE && lr != SPLIT_VALUE && combinable(min, max))
+        {
+            lastMin = min;
+            lastMax = max;
+            lastSum = sum;
+            return mean(sum, sideLength);
+        }
+
+        //Case 2: Builds the split node, popping children in reverse order
+        RITQTNode lrNode = node(lr);
+        RITQTNode llNode = node(ll);
+        RITQTNode urNode = node(ur);
+        RITQTNode ulNode = node(ul);
+        push(new RITQTNode(SPLIT_VALUE, ulNode, urNode, llNode, lrNode));
+        return SPLIT_VALUE;
+    }
+
+    /**
+     * Get the node for a quadrant's summary.
+     *
+     * @param summary the quadrant's value, or -1 if it was split
+     * @return a new leaf, or the quadrant's node from the pending stack
+     */
+    private RITQTNode node(int summary)
+    {
+        return summary == SPLIT_VALUE ? pop() : new RITQTNode(summary);
+    }
+
+    /**
+     * Adds a node to the pending stack.
+     *
+     * @param node the node to add
+     */
+    private void push(RITQTNode node)
+    {
+        if(pendingCount == pending.length)
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        pending[pendingCount++] = node;
+    }
+
+    /**
+     * Removes the most recently added node from the pending stack.
+     *
+     * @return the removed node
+     */
+    private RITQTNode pop()
+    {
+        RITQTNode node = pending[--pendingCount];
+        pending[pendingCount] = null;
+        return node;
+    }
+}
@@ -0,0 +1,287 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Turns quadtrees into DAGs in which structurally identical subtrees are
+ * a single shared node, and reads and fills such DAGs.
+ *
+ * Interning works bottom up: once a node's children are canonical, two
+ * nodes are identical exactly when their values match and their children
+ * are the same objects, so a hash map of (value, children) finds the
+ * canonical copy in constant time. Nodes are immutable, so sharing them
+ * is safe.
+ *
+ * The .ritd layout is the .rit preorder layout in which a split subtree
+ * that was already written is replaced by a single back-reference token,
+ * -2 - id, where id numbers the split nodes in the order they are written.
+ *
+ * Filling an image from a DAG fills each shared subtree once per side
+ * length and copies the block for its other occurrences.
+ */
+public class QuadTreeDag
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Side length at or below which shared blocks are filled instead of copied */
+    private static final int COPY_CUTOFF = 4;
+
+    /**
+     * The identity of a node whose children are canonical.
+     */
+    private static class Key
+    {
+        /** The node's value */
+        private final int val;
+
+        /** The node's canonical children, in quadrant order */
+        private final RITQTNode ul, ur, ll, lr;
+
+        /**
+         * Construct the key of a node.
+         *
+         * @param val the node's value
+         * @param ul the canonical upper left child
+         * @param ur the canonical upper right child
+         * @param ll the canonical lower left child
+         * @param lr the canonical lower right child
+         */
+        Key(int val, RITQTNode ul, RITQTNode ur, RITQTNode ll, RITQTNode lr)
+        {
+            this.val = val;
+            this.ul = ul;
+            this.ur = ur;
+            this.ll = ll;
+            this.lr = lr;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if(!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return val == key.val && ul == key.ul && ur == key.ur && ll == key.ll && lr == key.lr;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = val;
+            hash = 31 * hash + System.identityHashCode(ul);
+            hash = 31 * hash + System.identityHashCode(ur);
+            hash = 31 * hash + System.identityHashCode(ll);
+            hash = 31 * hash + System.identityHashCode(lr);
+            return hash;
+        }
+    }
+
+    /** Canonical copy of each distinct node seen so far */
+    private final HashMap<Key, RITQTNode> canonical = new HashMap<Key, RITQTNode>();
+
+    /**
+     * Get the number of distinct nodes interned so far.
+     *
+     * @return distinct node count
+     */
+    public int getDistinctCount() { return this.canonical.size(); }
+
+    /**
+     * Get the canonical copy of a quadtree, sharing every subtree that is
+     * identical to one interned before.
+     *
+     * @param node the root of the quadtree
+     * @return the canonical root
+     */
+    public RITQTNode intern(RITQTNode node)
+    {
+        Key key;
+        if(node.getUpperLeft() == null)
+            key = new Key(node.getVal(), null, null, null, null);
+        else
+            key = new Key(node.getVal(), intern(node.getUpperLeft()), intern(node.getUpperRight()),
+                    intern(node.getLowerLeft()), intern(node.getLowerRight()));
+
+        RITQTNode shared = canonical.get(key);
+        if(shared == null)
+        {
+            //Reuses the original node when none of its children were replaced
+            boolean same = key.ul == node.getUpperLeft() && key.ur == node.getUpperRight()
+                    && key.ll == node.getLowerLeft() && key.lr == node.getLowerRight();
+            shared = same ? node : new RITQTNode(key.val, key.ul, key.ur, key.ll, key.lr);
+            canonical.put(key, shared);
+        }
+        return shared;
+    }
+
+    /**
+     * Counts the distinct node objects of a tree or DAG.
+     *
+     * @param root the root of the quadtree
+     * @return number of distinct nodes
+     */
+    public static int countNodes(RITQTNode root)
+    {
+        return countNodes(root, new IdentityHashMap<RITQTNode, Boolean>());
+    }
+
+    /**
+     * Counts the distinct node objects of a subtree not seen yet.
+     *
+     * @param node the root of the subtree
+     * @param seen nodes already counted
+     * @return number of newly seen nodes
+     */
+    private static int countNodes(RITQTNode node, IdentityHashMap<RITQTNode, Boolean> seen)
+    {
+        if(seen.put(node, Boolean.TRUE) != null)
+            return 0;
+        if(node.getUpperLeft() == null)
+            return 1;
+        return 1 + countNodes(node.getUpperLeft(), seen) + countNodes(node.getUpperRight(), seen)
+                + countNodes(node.getLowerLeft(), seen) + countNodes(node.getLowerRight(), seen);
+    }
+
+    /**
+     * Encodes a reference to an already written split node as a .ritd token.
+     *
+     * @param id the split node's number, in the order split nodes are written
+     * @return the reference's token
+     */
+    public static int referenceToken(int id)
+    {
+        return -2 - id;
+    }
+
+    /**
+     * Given the .ritd tokens of a quadtree, creates the DAG they describe,
+     * each back-reference sharing the node it refers to.
+     *
+     * Splits are only allowed where the image has room for them, and a
+     * back-reference only where its subtree fits, so the expanded tree
+     * never has more leaves than the image has pixels.
+     *
+     * @param values Quadtree values, positioned at the root's value
+     * @param sideLength the side length of the image
+     * @return the root of the DAG
+     * @throws IllegalArgumentException if a back-reference refers to no written split node or doesn't fit,
+     * a split is deeper than the image, or a value isn't a pixel value
+     */
+    public static RITQTNode parse(TokenCursor values, int sideLength)
+    {
+        return parse(values, sideLength, new ArrayList<RITQTNode>(), new IdentityHashMap<RITQTNode, Integer>());
+    }
+
+    /**
+     * Creates the DAG of a subtree's .ritd tokens.
+     *
+     * @param values Quadtree values, positioned at this node's value
+     * @param sideLength the side length of the subtree's region
+     * @param splits split nodes by their number, null until complete
+     * @param heights levels below each complete split node, leaves being 0
+     * @return the subtree's node
+     */
+    private static RITQTNode parse(TokenCursor values, int sideLength, ArrayList<RITQTNode> splits,
+                                   IdentityHashMap<RITQTNode, Integer> heights)
+    {
+        int val = values.next();
+
+        //Back-reference: a complete split node written before
+        if(val < SPLIT_VALUE)
+        {
+            int id = referenceToken(0) - val;
+            if(id >= splits.size() || splits.get(id) == null)
+                throw new IllegalArgumentException("Quadtree refers to a subtree that wasn't written!");
+
+            //Error Check: Subtree is no taller than its region, so references cannot multiply past the pixels
+            RITQTNode node = splits.get(id);
+            if(1 << heights.get(node) > sideLength)
+                throw new IllegalArgumentException("Quadtree refers to a subtree larger than its region!");
+            return node;
+        }
+
+        if(RITQTNode.checkValue(val) != SPLIT_VALUE)
+            return new RITQTNode(val);
+
+        //Error Check: Region has room to split
+        if(sideLength <= 1)
+            throw new IllegalArgumentException("Quadtree is deeper than the image!");
+
+        //Numbers the split node before its children, as the writer does
+        int id = splits.size();
+        splits.add(null);
+        int childLength = sideLength/2;
+        RITQTNode[] children = new RITQTNode[4];
+        int height = 0;
+        for(int quadrant = 0; quadrant < 4; quadrant++)
+        {
+            children[quadrant] = parse(values, childLength, splits, heights);
+            height = Math.max(height, heights.getOrDefault(children[quadrant], 0));
+        }
+        RITQTNode node = new RITQTNode(val, children[0], children[1], children[2], children[3]);
+        splits.set(id, node);
+        heights.put(node, height + 1);
+        return node;
+    }
+
+    /**
+     * Converts a DAG into a 2D image representation. The first occurrence
+     * of each shared subtree at a given side length is filled and every
+     * later occurrence is copied from it, row by row.
+     *
+     * @param root the root of the DAG
+     * @param image the 2D image array to modify
+     * @param sideLength the side length of the image
+     * @return the filled image
+     */
+    public static int[][] uncompress(RITQTNode root, int[][] image, int sideLength)
+    {
+        fill(root, image, 0, 0, sideLength, new IdentityHashMap<RITQTNode, int[]>());
+        return image;
+    }
+
+    /**
+     * Fills the region of one node, copying it if the node was already
+     * filled at the same side length.
+     *
+     * @param node the node to fill
+     * @param image the 2D image array to modify
+     * @param rowStart the row component of the region's starting coordinates
+     * @param colStart the col component of the region's starting coordinates
+     * @param sideLength the side length of the region
+     * @param filled first (row, col, side length) each split node was filled at
+     */
+    private static void fill(RITQTNode node, int[][] image, int rowStart, int colStart, int sideLength,
+                             IdentityHashMap<RITQTNode, int[]> filled)
+    {
+        //Base case: Leaf node
+        if(node.getUpperLeft() == null)
+        {
+            for(int row = rowStart; row < rowStart + sideLength; row++)
+                Arrays.fill(image[row], colStart, colStart + sideLength, node.getVal());
+            return;
+        }
+
+        //Shared case: The same block was already filled, so it is copied
+        int[] first = sideLength > COPY_CUTOFF ? filled.get(node) : null;
+        if(first != null && first[2] == sideLength)
+        {
+            for(int row = 0; row < sideLength; row++)
+                System.arraycopy(image[first[0] + row], first[1], image[rowStart + row], colStart, sideLength);
+            return;
+        }
+        if(first == null && sideLength > COPY_CUTOFF)
+            filled.put(node, new int[] {rowStart, colStart, sideLength});
+
+        //Recursive case: Fills the four quadrants
+        int childLength = sideLength/2;
+        fill(node.getUpperLeft(), image, rowStart, colStart, childLength, filled);
+        fill(node.getUpperRight(), image, rowStart, colStart + childLength, childLength, filled);
+        fill(node.getLowerLeft(), image, rowStart + childLength, colStart, childLength, filled);
+        fill(node.getLowerRight(), image, rowStart + childLength, colStart + childLength, childLength, filled);
+    }
+}
@@ -0,0 +1,212 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A summary of where two images of the same side length differ, worked
+ * out from their quadtrees without uncompressing them.
+ *
+ * Both trees are walked at once, and a pair of leaves is compared as one
+ * block however many pixels it covers. The same subtree on both sides is
+ * skipped without walking it. Changes are counted in pixels, in blocks
+ * (pairs of differing leaves), and per region, a grid of aligned squares
+ * regionDepth levels below the whole image.
+ */
+public class QuadTreeDiff
+{
+    /** Grid depth used by default: an 8x8 grid of regions */
+    public static final int DEFAULT_REGION_DEPTH = 3;
+
+    /** The side length of the images */
+    private final int sideLength;
+
+    /** The side length of a region */
+    private final int regionLength;
+
+    /** Number of regions per row and column */
+    private final int regionsPerSide;
+
+    /** Changed pixels per region, row by row */
+    private final long[] regionChanges;
+
+    /** Number of pixels that differ */
+    private long changedPixels = 0;
+
+    /** Number of pairs of differing leaves */
+    private long changedBlocks = 0;
+
+    /** Largest absolute difference between two pixels */
+    private int maxDifference = 0;
+
+    /** Bounding box of the changed pixels, inclusive, empty while top > bottom */
+    private int top = Integer.MAX_VALUE, left = Integer.MAX_VALUE, bottom = -1, right = -1;
+
+    /**
+     * Construct an empty summary.
+     *
+     * @param sideLength the side length of the images
+     * @param regionDepth levels between the whole image and a region
+     */
+    private QuadTreeDiff(int sideLength, int regionDepth)
+    {
+        this.sideLength = sideLength;
+        this.regionLength = Math.max(sideLength >> Math.min(regionDepth, 30), 1);
+        this.regionsPerSide = sideLength / regionLength;
+        this.regionChanges = new long[regionsPerSide * regionsPerSide];
+    }
+
+    /**
+     * Compares two images with the default grid of regions.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @param sideLength the side length of both images
+     * @return the summary of their differences
+     */
+    public static QuadTreeDiff of(RITQTNode first, RITQTNode second, int sideLength)
+    {
+        return of(first, second, sideLength, DEFAULT_REGION_DEPTH);
+    }
+
+    /**
+     * Compares two images.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @param sideLength the side length of both images
+     * @param regionDepth levels between the whole image and a region, 0 for a single region
+     * @return the summary of their differences
+     */
+    public static QuadTreeDiff of(RITQTNode first, RITQTNode second, int sideLength, int regionDepth)
+    {
+        QuadTreeDiff diff = new QuadTreeDiff(sideLength, Math.max(regionDepth, 0));
+        diff.compare(first, second, 0, 0, sideLength);
+        return diff;
+    }
+
+    /**
+     * Compares the regions of two nodes.
+     *
+     * @param first the first image's node
+     * @param second the second image's node, covering the same region
+     * @param rowStart the row component of the region's starting coordinates
+     * @param colStart the col component of the region's starting coordinates
+     * @param length the side length of the region
+     */
+    private void compare(RITQTNode first, RITQTNode second, int rowStart, int colStart, int length)
+    {
+        //Base case: The same subtree on both sides has no changes
+        if(first == second)
+            return;
+
+        //Base case: Two leaves are one block, changed or not
+        boolean firstLeaf = first.getUpperLeft() == null;
+        boolean secondLeaf = second.getUpperLeft() == null;
+        if(firstLeaf && secondLeaf)
+        {
+            if(first.getVal() != second.getVal())
+                change(rowStart, colStart, length, Math.abs(first.getVal() - second.getVal()));
+            return;
+        }
+
+        //Recursive case: Compares the quadrants, a leaf standing for each of its own
+        int half = length/2;
+        compare(firstLeaf ? first : first.getUpperLeft(), secondLeaf ? second : second.getUpperLeft(), rowStart, colStart, half);
+        compare(firstLeaf ? first : first.getUpperRight(), secondLeaf ? second : second.getUpperRight(), rowStart, colStart + half, half);
+        compare(firstLeaf ? first : first.getLowerLeft(), secondLeaf ? second : second.getLowerLeft(), rowStart + half, colStart, half);
+        compare(firstLeaf ? first : first.getLowerRight(), secondLeaf ? second : second.getLowerRight(), rowStart + half, colStart + half, half);
+    }
+
+    /**
+     * Records a changed block.
+     *
+     * @param rowStart the row component of the block's starting coordinates
+     * @param colStart the col component of the block's starting coordinates
+     * @param length the side length of the block
+     * @param difference the absolute difference of its values
+     */
+    private void change(int rowStart, int colStart, int length, int difference)
+    {
+        changedPixels += (long) length * length;
+        changedBlocks++;
+        maxDifference = Math.max(maxDifference, difference);
+        top = Math.min(top, rowStart);
+        left = Math.min(left, colStart);
+        bottom = Math.max(bottom, rowStart + length - 1);
+        right = Math.max(right, colStart + length - 1);
+
+        //A block covers whole regions, or lies inside one
+        int span = Math.max(length / regionLength, 1);
+        long area = Math.min((long) length * length, (long) regionLength * regionLength);
+        for(int row = rowStart / regionLength; row < rowStart / regionLength + span; row++)
+        {
+            for(int col = colStart / regionLength; col < colStart / regionLength + span; col++)
+                regionChanges[row * regionsPerSide + col] += area;
+        }
+    }
+
+    /**
+     * Get the number of pixels that differ.
+     *
+     * @return changed pixel count
+     */
+    public long getChangedPixels() { return this.changedPixels; }
+
+    /**
+     * Get the number of pairs of differing leaves, each a uniformly
+     * changed square block.
+     *
+     * @return changed block count
+     */
+    public long getChangedBlocks() { return this.changedBlocks; }
+
+    /**
+     * Get the largest absolute difference between two pixels.
+     *
+     * @return the largest difference, 0 if the images are the same
+     */
+    public int getMaxDifference() { return this.maxDifference; }
+
+    /**
+     * Get the bounding box of the changed pixels.
+     *
+     * @return row, col, height and width, or null if the images are the same
+     */
+    public int[] getBounds()
+    {
+        if(bottom < 0)
+            return null;
+        return new int[] {top, left, bottom - top + 1, right - left + 1};
+    }
+
+    /**
+     * Get the regions that changed.
+     *
+     * @return row, col, size and changed pixel count of each changed region, row by row
+     */
+    public List<long[]> getChangedRegions()
+    {
+        List<long[]> regions = new ArrayList<long[]>();
+        for(int i = 0; i < regionChanges.length; i++)
+        {
+            if(regionChanges[i] > 0)
+                regions.add(new long[] {(long) (i / regionsPerSide) * regionLength, (long) (i % regionsPerSide) * regionLength,
+                        regionLength, regionChanges[i]});
+        }
+        return regions;
+    }
+
+    @Override
+    public String toString()
+    {
+        long pixels = (long) sideLength * sideLength;
+        String summary = String.format("%d of %d pixels changed (%.2f%%), %d blocks, %d of %d regions, max difference %d",
+                changedPixels, pixels, 100.0 * changedPixels / pixels, changedBlocks, getChangedRegions().size(),
+                regionChanges.length, maxDifference);
+        int[] bounds = getBounds();
+        if(bounds != null)
+            summary += String.format(", bounds %d,%d %dx%d", bounds[0], bounds[1], bounds[2], bounds[3]);
+        return summary;
+    }
+}
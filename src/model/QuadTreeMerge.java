@@ -0,0 +1,286 @@
+package model;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Pixel-wise operations between two images of the same side length, done
+ * on their quadtrees without uncompressing them.
+ *
+ * Both trees are walked at once. Where both are leaves the result is one
+ * leaf, and where only one is a leaf it stands for each of its quadrants.
+ * A leaf whose value decides the result alone (0 for min, 255 for max)
+ * ends the walk there, and one that leaves the other image unchanged
+ * (255 for min, 0 for max) returns the other subtree as it is. The same
+ * subtree on both sides, as in DAGs or trees derived from one another,
+ * is handled without walking it. The cost tracks the nodes of both
+ * trees, not the pixels. Four sibling leaves that end up equal are
+ * merged back into one.
+ *
+ * Trees aren't modified, and results share unchanged subtrees with them.
+ */
+public class QuadTreeMerge
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Smallest mask value that selects the first image */
+    public static final int MASK_THRESHOLD = 128;
+
+    /** Tables of the built-in operations, made once */
+    private static final Table MIN = new Table(Math::min), MAX = new Table(Math::max),
+            AVERAGE = new Table((a, b) -> (a + b + 1) / 2), DIFFERENCE = new Table((a, b) -> Math.abs(a - b));
+
+    /**
+     * An operation's result for every pair of values, with the shortcuts
+     * it allows.
+     */
+    private static class Table
+    {
+        /** Result of each pair, indexed by first value * 256 + second value */
+        private final int[] results = new int[256 * 256];
+
+        /** Each first value's result when it fixes the result alone, -1 otherwise */
+        private final int[] firstConstant = new int[256];
+
+        /** Each second value's result when it fixes the result alone, -1 otherwise */
+        private final int[] secondConstant = new int[256];
+
+        /** Whether or not each first value leaves the second image unchanged */
+        private final boolean[] firstIdentity = new boolean[256];
+
+        /** Whether or not each second value leaves the first image unchanged */
+        private final boolean[] secondIdentity = new boolean[256];
+
+        /** The result of a pair of equal values when it is the same for all, -1 otherwise */
+        private int sameConstant;
+
+        /** Whether or not a pair of equal values gives that value back */
+        private boolean sameIdentity = true;
+
+        /** One leaf per result value, shared */
+        private final RITQTNode[] leaves = new RITQTNode[256];
+
+        /**
+         * Tabulates an operation.
+         *
+         * @param operation the result of a pair of values, 0-255
+         * @throws IllegalArgumentException if the operation returns a value outside 0-255
+         */
+        Table(IntBinaryOperator operation)
+        {
+            for(int first = 0; first < 256; first++)
+            {
+                for(int second = 0; second < 256; second++)
+                {
+                    int result = operation.applyAsInt(first, second);
+                    if(result < 0 || result > 255)
+                        throw new IllegalArgumentException("Result " + result + " isn't a pixel value! (Valid pixel value: 0-255)");
+                    results[first * 256 + second] = result;
+                }
+            }
+
+            //Looks for values that fix the result, or give the other value back, whatever it is
+            for(int val = 0; val < 256; val++)
+            {
+                firstConstant[val] = results[val * 256];
+                secondConstant[val] = results[val];
+                firstIdentity[val] = true;
+                secondIdentity[val] = true;
+                for(int other = 0; other < 256; other++)
+                {
+                    if(results[val * 256 + other] != firstConstant[val])
+                        firstConstant[val] = -1;
+                    if(results[other * 256 + val] != secondConstant[val])
+                        secondConstant[val] = -1;
+                    firstIdentity[val] &= results[val * 256 + other] == other;
+                    secondIdentity[val] &= results[other * 256 + val] == other;
+                }
+            }
+            sameConstant = results[0];
+            for(int val = 0; val < 256; val++)
+            {
+                if(results[val * 257] != sameConstant)
+                    sameConstant = -1;
+                sameIdentity &= results[val * 257] == val;
+            }
+
+            for(int val = 0; val < 256; val++)
+                leaves[val] = new RITQTNode(val);
+        }
+
+        /**
+         * Gets the result leaf of a pair of values.
+         *
+         * @param first the first image's value
+         * @param second the second image's value
+         * @return the shared leaf of the result
+         */
+        RITQTNode leaf(int first, int second)
+        {
+            return leaves[results[checked(first) * 256 + checked(second)]];
+        }
+    }
+
+    /**
+     * Takes the darker value of each pixel.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @return the root of the result's quadtree
+     */
+    public static RITQTNode min(RITQTNode first, RITQTNode second)
+    {
+        return combine(first, second, MIN);
+    }
+
+    /**
+     * Takes the lighter value of each pixel.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @return the root of the result's quadtree
+     */
+    public static RITQTNode max(RITQTNode first, RITQTNode second)
+    {
+        return combine(first, second, MAX);
+    }
+
+    /**
+     * Takes the mean of each pixel's values, rounded half up.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @return the root of the result's quadtree
+     */
+    public static RITQTNode average(RITQTNode first, RITQTNode second)
+    {
+        return combine(first, second, AVERAGE);
+    }
+
+    /**
+     * Takes the absolute difference of each pixel's values, 0 where the
+     * images agree.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @return the root of the result's quadtree
+     */
+    public static RITQTNode difference(RITQTNode first, RITQTNode second)
+    {
+        return combine(first, second, DIFFERENCE);
+    }
+
+    /**
+     * Combines each pixel's values with an operation.
+     *
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @param operation the result of a pair of values, 0-255
+     * @return the root of the result's quadtree
+     * @throws IllegalArgumentException if the operation returns, or a tree holds, a value outside 0-255
+     */
+    public static RITQTNode combine(RITQTNode first, RITQTNode second, IntBinaryOperator operation)
+    {
+        return combine(first, second, new Table(operation));
+    }
+
+    /**
+     * Combines the regions of two nodes.
+     *
+     * @param first the first image's node
+     * @param second the second image's node, covering the same region
+     * @param table the operation's results and shortcuts
+     * @return the root of the region's result
+     */
+    private static RITQTNode combine(RITQTNode first, RITQTNode second, Table table)
+    {
+        boolean firstLeaf = first.getUpperLeft() == null;
+        boolean secondLeaf = second.getUpperLeft() == null;
+
+        //Base case: Two leaves make one
+        if(firstLeaf && secondLeaf)
+            return table.leaf(first.getVal(), second.getVal());
+
+        //Base case: The same subtree on both sides
+        if(first == second && table.sameIdentity)
+            return first;
+        if(first == second && table.sameConstant >= 0)
+            return table.leaves[table.sameConstant];
+
+        //Base case: A leaf that fixes the result, or leaves the other side as it is
+        if(firstLeaf && table.firstConstant[checked(first.getVal())] >= 0)
+            return table.leaves[table.firstConstant[first.getVal()]];
+        if(firstLeaf && table.firstIdentity[first.getVal()])
+            return second;
+        if(secondLeaf && table.secondConstant[checked(second.getVal())] >= 0)
+            return table.leaves[table.secondConstant[second.getVal()]];
+        if(secondLeaf && table.secondIdentity[second.getVal()])
+            return first;
+
+        //Recursive case: Combines the quadrants, a leaf standing for each of its own
+        return merge(combine(firstLeaf ? first : first.getUpperLeft(), secondLeaf ? second : second.getUpperLeft(), table),
+                combine(firstLeaf ? first : first.getUpperRight(), secondLeaf ? second : second.getUpperRight(), table),
+                combine(firstLeaf ? first : first.getLowerLeft(), secondLeaf ? second : second.getLowerLeft(), table),
+                combine(firstLeaf ? first : first.getLowerRight(), secondLeaf ? second : second.getLowerRight(), table));
+    }
+
+    /**
+     * Takes each pixel from the first image where the mask is light
+     * (MASK_THRESHOLD or more) and from the second image elsewhere.
+     *
+     * @param mask the root of the mask's quadtree
+     * @param first the root of the first image's quadtree
+     * @param second the root of the second image's quadtree
+     * @return the root of the result's quadtree
+     */
+    public static RITQTNode select(RITQTNode mask, RITQTNode first, RITQTNode second)
+    {
+        //Base case: A mask leaf picks a whole subtree
+        if(mask.getUpperLeft() == null)
+            return checked(mask.getVal()) >= MASK_THRESHOLD ? first : second;
+
+        //Base case: Both sides are the same subtree
+        if(first == second)
+            return first;
+
+        //Recursive case: Selects each quadrant, a leaf standing for each of its own
+        boolean firstLeaf = first.getUpperLeft() == null;
+        boolean secondLeaf = second.getUpperLeft() == null;
+        return merge(select(mask.getUpperLeft(), firstLeaf ? first : first.getUpperLeft(), secondLeaf ? second : second.getUpperLeft()),
+                select(mask.getUpperRight(), firstLeaf ? first : first.getUpperRight(), secondLeaf ? second : second.getUpperRight()),
+                select(mask.getLowerLeft(), firstLeaf ? first : first.getLowerLeft(), secondLeaf ? second : second.getLowerLeft()),
+                select(mask.getLowerRight(), firstLeaf ? first : first.getLowerRight(), secondLeaf ? second : second.getLowerRight()));
+    }
+
+    /**
+     * Joins four quadrants into one node, or into one leaf if they are
+     * leaves of the same value.
+     *
+     * @param ul the upper left quadrant
+     * @param ur the upper right quadrant
+     * @param ll the lower left quadrant
+     * @param lr the lower right quadrant
+     * @return the joined node
+     */
+    private static RITQTNode merge(RITQTNode ul, RITQTNode ur, RITQTNode ll, RITQTNode lr)
+    {
+        if(ul.getUpperLeft() == null && ur.getUpperLeft() == null && ll.getUpperLeft() == null && lr.getUpperLeft() == null
+                && ul.getVal() == ur.getVal() && ur.getVal() == ll.getVal() && ll.getVal() == lr.getVal())
+            return ul;
+        return new RITQTNode(SPLIT_VALUE, ul, ur, ll, lr);
+    }
+
+    /**
+     * Checks that a leaf's value is a pixel value.
+     *
+     * @param val the leaf's value
+     * @return the value
+     * @throws IllegalArgumentException if the value isn't 0-255
+     */
+    private static int checked(int val)
+    {
+        if(val < 0 || val > 255)
+            throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+        return val;
+    }
+}
@@ -0,0 +1,200 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A short description of a quadtree for logging: its node and leaf counts,
+ * its depth, how many leaves sit at each depth and its first few preorder
+ * values.
+ *
+ * A summary takes constant space however large the tree is, unlike the
+ * tree's toString, which spells out every value (megabytes for a 512x512
+ * image). Shared subtrees are counted once per occurrence, as they would
+ * be written to a .rit file.
+ */
+public class QuadTreeSummary
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Number of preorder values kept by default */
+    public static final int DEFAULT_TOKENS = 16;
+
+    /** Number of nodes in the tree */
+    private long nodeCount = 0;
+
+    /** Number of leaves in the tree */
+    private long leafCount = 0;
+
+    /** Depth of the deepest node, the root being at depth 0 */
+    private int maxDepth = 0;
+
+    /** Number of leaves at each depth */
+    private long[] leavesPerDepth = new long[8];
+
+    /** The first preorder values */
+    private final int[] firstTokens;
+
+    /** Number of preorder values kept */
+    private int tokenCount = 0;
+
+    /**
+     * Construct an empty summary.
+     *
+     * @param tokens number of preorder values to keep
+     */
+    private QuadTreeSummary(int tokens)
+    {
+        this.firstTokens = new int[tokens];
+    }
+
+    /**
+     * Summarizes a quadtree, keeping its first DEFAULT_TOKENS values.
+     *
+     * @param root the root of the quadtree
+     * @return the summary
+     */
+    public static QuadTreeSummary of(RITQTNode root)
+    {
+        return of(root, DEFAULT_TOKENS);
+    }
+
+    /**
+     * Summarizes a quadtree.
+     *
+     * @param root the root of the quadtree
+     * @param tokens number of preorder values to keep
+     * @return the summary
+     */
+    public static QuadTreeSummary of(RITQTNode root, int tokens)
+    {
+        QuadTreeSummary summary = new QuadTreeSummary(tokens);
+        summary.visit(root, 0);
+        return summary;
+    }
+
+    /**
+     * Summarizes a compact quadtree, keeping its first DEFAULT_TOKENS values.
+     *
+     * @param tree the quadtree
+     * @return the summary
+     */
+    public static QuadTreeSummary of(CompactQuadTree tree)
+    {
+        QuadTreeSummary summary = new QuadTreeSummary(DEFAULT_TOKENS);
+
+        //Children still to come at each depth of the current path
+        int[] pending = new int[8];
+        int depth = 0;
+        int leaf = 0;
+        for(int node = 0; node < tree.getNodeCount(); node++)
+        {
+            if(tree.isSplit(node))
+            {
+                summary.add(SPLIT_VALUE, depth);
+                if(depth + 1 == pending.length)
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                pending[++depth] = 4;
+            }
+            else
+            {
+                summary.add(tree.getLeaf(leaf++), depth);
+
+                //Climbs back up past every finished split
+                while(depth > 0 && --pending[depth] == 0)
+                    depth--;
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Adds the nodes of a subtree in preorder.
+     *
+     * @param node the root of the subtree
+     * @param depth the depth of the subtree's root
+     */
+    private void visit(RITQTNode node, int depth)
+    {
+        add(node.getVal(), depth);
+        if(node.getUpperLeft() == null)
+            return;
+        visit(node.getUpperLeft(), depth + 1);
+        visit(node.getUpperRight(), depth + 1);
+        visit(node.getLowerLeft(), depth + 1);
+        visit(node.getLowerRight(), depth + 1);
+    }
+
+    /**
+     * Adds the next node in preorder.
+     *
+     * @param val the node's value
+     * @param depth the node's depth
+     */
+    private void add(int val, int depth)
+    {
+        nodeCount++;
+        maxDepth = Math.max(maxDepth, depth);
+        if(tokenCount < firstTokens.length)
+            firstTokens[tokenCount++] = val;
+        if(val != SPLIT_VALUE)
+        {
+            leafCount++;
+            if(depth >= leavesPerDepth.length)
+                leavesPerDepth = Arrays.copyOf(leavesPerDepth, Math.max(depth + 1, leavesPerDepth.length * 2));
+            leavesPerDepth[depth]++;
+        }
+    }
+
+    /**
+     * Get the number of nodes in the tree.
+     *
+     * @return node count
+     */
+    public long getNodeCount() { return this.nodeCount; }
+
+    /**
+     * Get the number of leaves in the tree.
+     *
+     * @return leaf count
+     */
+    public long getLeafCount() { return this.leafCount; }
+
+    /**
+     * Get the depth of the deepest node, the root being at depth 0.
+     *
+     * @return the tree's depth
+     */
+    public int getMaxDepth() { return this.maxDepth; }
+
+    /**
+     * Get the number of leaves at each depth, from the root down.
+     *
+     * @return leaf count of each depth up to the tree's depth
+     */
+    public long[] getLeavesPerDepth() { return Arrays.copyOf(this.leavesPerDepth, this.maxDepth + 1); }
+
+    /**
+     * Get the first preorder values of the tree.
+     *
+     * @return up to the requested number of values
+     */
+    public int[] getFirstTokens() { return Arrays.copyOf(this.firstTokens, this.tokenCount); }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(nodeCount).append(" nodes, ").append(leafCount).append(" leaves, depth ").append(maxDepth);
+
+        builder.append(", leaves per depth [");
+        for(int depth = 0; depth <= maxDepth; depth++)
+            builder.append(depth == 0 ? "" : " ").append(leavesPerDepth[depth]);
+        builder.append("], first values [");
+        for(int i = 0; i < tokenCount; i++)
+            builder.append(i == 0 ? "" : " ").append(firstTokens[i]);
+        builder.append(nodeCount > tokenCount ? " ...]" : "]");
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,260 @@
+package model;
+
+import java.util.IdentityHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Image transforms done on quadtrees, without uncompressing them.
+ *
+ * Rotations and mirrors only reorder each split node's children, and
+ * value maps (invert, threshold, posterize) only rewrite leaves, merging
+ * four sibling leaves that end up equal back into one. Cropping to an
+ * aligned quadrant walks down a single path. Each transform costs time
+ * proportional to the number of nodes, not pixels.
+ *
+ * Trees aren't modified. Rotated and mirrored trees share the original's
+ * leaves, mapped ones share one leaf per value, and every shared subtree
+ * of a DAG (see QuadTreeDag) is transformed once, so sharing is kept.
+ */
+public class QuadTreeTransform
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Child order of a quarter turn clockwise: each new quadrant's old quadrant */
+    private static final int[] ROTATE_90 = {2, 0, 3, 1};
+
+    /** Child order of a half turn */
+    private static final int[] ROTATE_180 = {3, 2, 1, 0};
+
+    /** Child order of a quarter turn counterclockwise */
+    private static final int[] ROTATE_270 = {1, 3, 0, 2};
+
+    /** Child order of a left to right mirror */
+    private static final int[] MIRROR_HORIZONTAL = {1, 0, 3, 2};
+
+    /** Child order of a top to bottom mirror */
+    private static final int[] MIRROR_VERTICAL = {2, 3, 0, 1};
+
+    /**
+     * Rotates an image clockwise.
+     *
+     * @param root the root of the image's quadtree
+     * @param degrees the rotation, a multiple of 90, negative for counterclockwise
+     * @return the root of the rotated image's quadtree
+     * @throws IllegalArgumentException if the rotation isn't a multiple of 90 degrees
+     */
+    public static RITQTNode rotate(RITQTNode root, int degrees)
+    {
+        if(degrees % 90 != 0)
+            throw new IllegalArgumentException("Images can only be rotated by multiples of 90 degrees!");
+
+        switch(Math.floorMod(degrees, 360))
+        {
+            case 90:
+                return reorder(root, ROTATE_90, new IdentityHashMap<RITQTNode, RITQTNode>());
+            case 180:
+                return reorder(root, ROTATE_180, new IdentityHashMap<RITQTNode, RITQTNode>());
+            case 270:
+                return reorder(root, ROTATE_270, new IdentityHashMap<RITQTNode, RITQTNode>());
+            default:
+                return root;
+        }
+    }
+
+    /**
+     * Mirrors an image, swapping its left and right halves.
+     *
+     * @param root the root of the image's quadtree
+     * @return the root of the mirrored image's quadtree
+     */
+    public static RITQTNode mirrorHorizontal(RITQTNode root)
+    {
+        return reorder(root, MIRROR_HORIZONTAL, new IdentityHashMap<RITQTNode, RITQTNode>());
+    }
+
+    /**
+     * Mirrors an image, swapping its top and bottom halves.
+     *
+     * @param root the root of the image's quadtree
+     * @return the root of the mirrored image's quadtree
+     */
+    public static RITQTNode mirrorVertical(RITQTNode root)
+    {
+        return reorder(root, MIRROR_VERTICAL, new IdentityHashMap<RITQTNode, RITQTNode>());
+    }
+
+    /**
+     * Reorders the children of every split node of a subtree.
+     *
+     * @param node the root of the subtree
+     * @param order each new quadrant's old quadrant, in quadrant order
+     * @param done the subtrees already reordered, by original node
+     * @return the reordered subtree
+     */
+    private static RITQTNode reorder(RITQTNode node, int[] order, IdentityHashMap<RITQTNode, RITQTNode> done)
+    {
+        //Base case: A leaf looks the same either way
+        if(node.getUpperLeft() == null)
+            return node;
+
+        //Shared subtrees are reordered once
+        RITQTNode result = done.get(node);
+        if(result != null)
+            return result;
+
+        //Recursive case: Reorders the children, then places them
+        RITQTNode[] children = children(node);
+        result = new RITQTNode(SPLIT_VALUE, reorder(children[order[0]], order, done), reorder(children[order[1]], order, done),
+                reorder(children[order[2]], order, done), reorder(children[order[3]], order, done));
+        done.put(node, result);
+        return result;
+    }
+
+    /**
+     * Inverts an image, each value v becoming 255 - v.
+     *
+     * @param root the root of the image's quadtree
+     * @return the root of the inverted image's quadtree
+     */
+    public static RITQTNode invert(RITQTNode root)
+    {
+        return map(root, (val) -> 255 - val);
+    }
+
+    /**
+     * Turns an image black and white.
+     *
+     * @param root the root of the image's quadtree
+     * @param threshold smallest value that becomes white (255), smaller ones become black (0)
+     * @return the root of the thresholded image's quadtree
+     */
+    public static RITQTNode threshold(RITQTNode root, int threshold)
+    {
+        return map(root, (val) -> val >= threshold ? 255 : 0);
+    }
+
+    /**
+     * Reduces an image to evenly spaced gray levels, each value becoming
+     * the nearest level.
+     *
+     * @param root the root of the image's quadtree
+     * @param levels number of gray levels, 2-256, always including 0 and 255
+     * @return the root of the posterized image's quadtree
+     * @throws IllegalArgumentException if the number of levels is out of range
+     */
+    public static RITQTNode posterize(RITQTNode root, int levels)
+    {
+        if(levels < 2 || levels > 256)
+            throw new IllegalArgumentException("Images can only be posterized to 2-256 levels!");
+
+        int steps = levels - 1;
+        return map(root, (val) -> (int) Math.round(Math.round(val * steps / 255.0) * 255.0 / steps));
+    }
+
+    /**
+     * Replaces every value of an image, merging four sibling leaves that
+     * become equal into one leaf.
+     *
+     * @param root the root of the image's quadtree
+     * @param function the new value of each value, 0-255
+     * @return the root of the new image's quadtree
+     * @throws IllegalArgumentException if the function returns a value outside 0-255
+     */
+    public static RITQTNode map(RITQTNode root, IntUnaryOperator function)
+    {
+        //One leaf per new value, so equal siblings are the same object
+        RITQTNode[] newLeaves = new RITQTNode[256];
+        RITQTNode[] leaves = new RITQTNode[256];
+        for(int val = 0; val < leaves.length; val++)
+        {
+            int mapped = function.applyAsInt(val);
+            if(mapped < 0 || mapped > 255)
+                throw new IllegalArgumentException("Mapped value " + mapped + " isn't a pixel value! (Valid pixel value: 0-255)");
+            if(newLeaves[mapped] == null)
+                newLeaves[mapped] = new RITQTNode(mapped);
+            leaves[val] = newLeaves[mapped];
+        }
+
+        return map(root, leaves, new IdentityHashMap<RITQTNode, RITQTNode>());
+    }
+
+    /**
+     * Replaces every value of a subtree.
+     *
+     * @param node the root of the subtree
+     * @param leaves each old value's new leaf
+     * @param done the subtrees already mapped, by original node
+     * @return the mapped subtree
+     */
+    private static RITQTNode map(RITQTNode node, RITQTNode[] leaves, IdentityHashMap<RITQTNode, RITQTNode> done)
+    {
+        //Base case: A leaf becomes its value's new leaf
+        if(node.getUpperLeft() == null)
+        {
+            if(node.getVal() < 0 || node.getVal() > 255)
+                throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+            return leaves[node.getVal()];
+        }
+
+        //Shared subtrees are mapped once
+        RITQTNode result = done.get(node);
+        if(result != null)
+            return result;
+
+        //Recursive case: Maps the children, merging them if they became one value
+        RITQTNode ul = map(node.getUpperLeft(), leaves, done);
+        RITQTNode ur = map(node.getUpperRight(), leaves, done);
+        RITQTNode ll = map(node.getLowerLeft(), leaves, done);
+        RITQTNode lr = map(node.getLowerRight(), leaves, done);
+        if(ul == ur && ur == ll && ll == lr && ul.getUpperLeft() == null)
+            result = ul;
+        else
+            result = new RITQTNode(SPLIT_VALUE, ul, ur, ll, lr);
+        done.put(node, result);
+        return result;
+    }
+
+    /**
+     * Crops an image to an aligned square: one of its quadrants, or a
+     * quadrant of a quadrant, and so on.
+     *
+     * @param root the root of the image's quadtree
+     * @param sideLength the side length of the image
+     * @param row the row of the square's top edge, a multiple of its size
+     * @param col the column of the square's left edge, a multiple of its size
+     * @param size the side length of the square, sideLength divided by a power of two
+     * @return the root of the square's quadtree
+     * @throws IllegalArgumentException if the square isn't an aligned square inside the image
+     */
+    public static RITQTNode crop(RITQTNode root, int sideLength, int row, int col, int size)
+    {
+        //Error Check: Square is aligned and inside the image
+        if(size < 1 || Integer.bitCount(size) != 1 || size > sideLength || Integer.bitCount(sideLength) != 1
+                || row < 0 || col < 0 || row % size != 0 || col % size != 0 || row + size > sideLength || col + size > sideLength)
+            throw new IllegalArgumentException("Crop must be an aligned square inside the image!");
+
+        //Walks down to the square, a leaf on the way already covers all of it
+        RITQTNode node = root;
+        int length = sideLength;
+        while(length > size && node.getUpperLeft() != null)
+        {
+            length /= 2;
+            boolean bottom = (row & length) != 0;
+            boolean right = (col & length) != 0;
+            node = children(node)[(bottom ? 2 : 0) + (right ? 1 : 0)];
+        }
+        return node;
+    }
+
+    /**
+     * Gets a split node's children in quadrant order.
+     *
+     * @param node the split node
+     * @return its upper left, upper right, lower left and lower right children
+     */
+    private static RITQTNode[] children(RITQTNode node)
+    {
+        return new RITQTNode[] {node.getUpperLeft(), node.getUpperRight(), node.getLowerLeft(), node.getLowerRight()};
+    }
+}
@@ -0,0 +1,242 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes quadtree or pixel values to a stream as decimal tokens, one per
+ * line, with no newline after the last token (the .rit and .txt layout).
+ *
+ * Trees are walked in preorder and each value goes straight to a buffered
+ * stream, so memory use doesn't depend on the size of the tree. Trees can
+ * also be written in level order for progressive viewing (.ritp), or with
+ * back-references to repeated subtrees (.ritd). The number
+ * of tokens written is counted for the compression stats.
+ */
+public class QuadTreeWriter implements Closeable
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** Pre-rendered text of the values -1 to 255 */
+    private static final byte[][] DIGITS = new byte[257][];
+
+    static
+    {
+        for(int val = SPLIT_VALUE; val <= 255; val++)
+            DIGITS[val + 1] = Integer.toString(val).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** The stream tokens are written to */
+    private final OutputStream out;
+
+    /** Number of tokens written so far */
+    private int tokenCount = 0;
+
+    /**
+     * Construct a writer over a stream, adding a buffer to it.
+     *
+     * @param out the stream to write to
+     */
+    public QuadTreeWriter(OutputStream out)
+    {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+    }
+
+    /**
+     * Get the number of tokens written so far.
+     *
+     * @return token count
+     */
+    public int getTokenCount() { return this.tokenCount; }
+
+    /**
+     * Writes a single token.
+     *
+     * @param val the token's value
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeToken(int val) throws IOException
+    {
+        if(tokenCount++ > 0)
+            out.write('\n');
+
+        if(val >= SPLIT_VALUE && val <= 255)
+            out.write(DIGITS[val + 1]);
+        else
+            out.write(Integer.toString(val).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes a run of grayscale pixel values, one token each.
+     *
+     * @param pixels the pixel values, one unsigned byte each
+     * @param offset index of the first pixel to write
+     * @param length number of pixels to write
+     * @throws IOException if the stream cannot be written
+     */
+    public void writePixels(byte[] pixels, int offset, int length) throws IOException
+    {
+        for(int i = offset; i < offset + length; i++)
+        {
+            if(tokenCount++ > 0)
+                out.write('\n');
+            out.write(DIGITS[(pixels[i] & 0xFF) + 1]);
+        }
+    }
+
+    /**
+     * Writes a linked quadtree in preorder.
+     *
+     * @param node the root of the quadtree
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(RITQTNode node) throws IOException
+    {
+        writeToken(node.getVal());
+        if(node.getVal() == SPLIT_VALUE)
+        {
+            write(node.getUpperLeft());
+            write(node.getUpperRight());
+            write(node.getLowerLeft());
+            write(node.getLowerRight());
+        }
+    }
+
+    /**
+     * Writes a compact quadtree in preorder.
+     *
+     * @param tree the quadtree
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(CompactQuadTree tree) throws IOException
+    {
+        int leaf = 0;
+        for(int node = 0; node < tree.getNodeCount(); node++)
+            writeToken(tree.isSplit(node) ? SPLIT_VALUE : tree.getLeaf(leaf++));
+    }
+
+    /**
+     * Writes a quadtree or DAG in preorder, replacing every split node
+     * written before by a back-reference (the .ritd layout), see QuadTreeDag.
+     *
+     * @param root the root of the quadtree, ideally interned
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeShared(RITQTNode root) throws IOException
+    {
+        writeShared(root, new IdentityHashMap<RITQTNode, Integer>());
+    }
+
+    /**
+     * Writes a subtree in the .ritd layout.
+     *
+     * @param node the root of the subtree
+     * @param ids number of each split node written so far
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeShared(RITQTNode node, IdentityHashMap<RITQTNode, Integer> ids) throws IOException
+    {
+        if(node.getUpperLeft() == null)
+        {
+            writeToken(node.getVal());
+            return;
+        }
+
+        Integer id = ids.get(node);
+        if(id != null)
+        {
+            writeToken(QuadTreeDag.referenceToken(id));
+            return;
+        }
+        ids.put(node, ids.size());
+        writeToken(SPLIT_VALUE);
+        writeShared(node.getUpperLeft(), ids);
+        writeShared(node.getUpperRight(), ids);
+        writeShared(node.getLowerLeft(), ids);
+        writeShared(node.getLowerRight(), ids);
+    }
+
+    /**
+     * Writes a linked quadtree in level order (the .ritp layout), each
+     * interior node holding the rounded mean of its region, see
+     * ProgressiveDecoder.
+     *
+     * @param root the root of the quadtree
+     * @param sideLength the side length of the image
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if a leaf isn't a valid pixel value
+     */
+    public void writeLevelOrder(RITQTNode root, int sideLength) throws IOException
+    {
+        //Lists the nodes breadth first with their side length and first child, -1 for leaves
+        ArrayList<RITQTNode> nodes = new ArrayList<RITQTNode>();
+        int[] sizes = new int[64];
+        int[] firstChild = new int[64];
+        nodes.add(root);
+        sizes[0] = sideLength;
+        for(int i = 0; i < nodes.size(); i++)
+        {
+            RITQTNode node = nodes.get(i);
+            if(nodes.size() + 4 > sizes.length)
+            {
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+                firstChild = Arrays.copyOf(firstChild, firstChild.length * 2);
+            }
+            firstChild[i] = -1;
+            if(node.getVal() == SPLIT_VALUE && node.getUpperLeft() != null)
+            {
+                firstChild[i] = nodes.size();
+                nodes.add(node.getUpperLeft());
+                nodes.add(node.getUpperRight());
+                nodes.add(node.getLowerLeft());
+                nodes.add(node.getLowerRight());
+                Arrays.fill(sizes, firstChild[i], firstChild[i] + 4, sizes[i] / 2);
+            }
+        }
+
+        //Pixel sum of each region, children before their parents
+        long[] sums = new long[nodes.size()];
+        for(int i = nodes.size() - 1; i >= 0; i--)
+        {
+            int child = firstChild[i];
+            int val = nodes.get(i).getVal();
+            if(child >= 0)
+                sums[i] = sums[child] + sums[child + 1] + sums[child + 2] + sums[child + 3];
+            else if(val < 0 || val > 255)
+                throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+            else
+                sums[i] = (long) val * sizes[i] * sizes[i];
+        }
+
+        for(int i = 0; i < nodes.size(); i++)
+        {
+            if(firstChild[i] >= 0)
+                writeToken(ProgressiveDecoder.splitToken(QuadTreeCompressor.mean(sums[i], sizes[i])));
+            else
+                writeToken(nodes.get(i).getVal());
+        }
+    }
+
+    /**
+     * Flushes any buffered tokens to the stream.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+}
@@ -0,0 +1,221 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A quadtree stored in the binary Rich Image Tool format (.ritb).
+ *
+ * Layout, big endian:
+ *   magic "RITB" (4 bytes), version (1 byte),
+ *   side length (4 bytes), node count (4 bytes),
+ *   split flags, 1 bit per preorder node, least significant bit first,
+ *   leaf values, 1 byte per leaf in preorder.
+ *
+ * A tree with N nodes always has (3N + 1) / 4 leaves, so the leaf count
+ * isn't stored. Files are read through a memory mapped buffer.
+ */
+public class RITBFile
+{
+    /** First bytes of every binary file */
+    private static final byte[] MAGIC = {'R', 'I', 'T', 'B'};
+
+    /** Current format version */
+    private static final int VERSION = 1;
+
+    /** Size of the header in bytes */
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 4 + 4;
+
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** The image's quadtree */
+    private final CompactQuadTree tree;
+
+    /**
+     * Construct a binary file's contents.
+     *
+     * @param sideLength the side length of the image
+     * @param tree the image's quadtree
+     */
+    public RITBFile(int sideLength, CompactQuadTree tree)
+    {
+        this.sideLength = sideLength;
+        this.tree = tree;
+    }
+
+    /**
+     * Get the side length of the image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get the image's quadtree.
+     *
+     * @return the quadtree
+     */
+    public CompactQuadTree getTree() { return this.tree; }
+
+    /**
+     * Number of bytes needed for the split flags of a tree.
+     *
+     * @param nodeCount number of nodes in the tree
+     * @return size of the split flags in bytes
+     */
+    static int flagBytes(int nodeCount) { return (nodeCount + 7) >>> 3; }
+
+    /**
+     * Writes a tree's split flags, least significant bit of each word first.
+     *
+     * @param out the stream to write to
+     * @param tree the tree whose flags are written
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeFlags(DataOutputStream out, CompactQuadTree tree) throws IOException
+    {
+        long[] splits = tree.splitWords();
+        for(int i = 0; i < flagBytes(tree.getNodeCount()); i++)
+            out.writeByte((int) (splits[i >>> 3] >>> ((i & 7) * 8)));
+    }
+
+    /**
+     * Reads split flags written by writeFlags, packed back into 64 bit words.
+     *
+     * @param buffer buffer positioned at the first flag byte
+     * @param nodeCount number of nodes in the tree
+     * @return the split flags
+     */
+    static long[] readFlags(ByteBuffer buffer, int nodeCount)
+    {
+        long[] splits = new long[(nodeCount + 63) >>> 6];
+        for(int i = 0; i < flagBytes(nodeCount); i++)
+            splits[i >>> 3] |= (buffer.get() & 0xFFL) << ((i & 7) * 8);
+        if(nodeCount % 64 != 0)
+            splits[splits.length - 1] &= (1L << nodeCount) - 1;
+        return splits;
+    }
+
+    /**
+     * Checks that a tree's split flags describe exactly one complete
+     * preorder tree.
+     *
+     * @param tree the tree to check
+     * @throws IOException if the flags don't describe one complete tree
+     */
+    static void checkStructure(CompactQuadTree tree) throws IOException
+    {
+        int pending = 1;
+        for(int node = 0; node < tree.getNodeCount(); node++)
+        {
+            if(pending == 0)
+                throw new IOException("Compressed file has an invalid tree structure!");
+            pending += tree.isSplit(node) ? 3 : -1;
+        }
+        if(pending != 0)
+            throw new IOException("Compressed file has an invalid tree structure!");
+    }
+
+    /**
+     * Writes the header and the packed tree to a file.
+     *
+     * @param file the file to write to
+     * @return number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(File file) throws IOException
+    {
+        int nodeCount = tree.getNodeCount();
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            //Header
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(sideLength);
+            out.writeInt(nodeCount);
+
+            //Split flags, least significant bit of each word first
+            writeFlags(out, tree);
+
+            //Leaf values
+            out.write(tree.leafBytes(), 0, tree.getLeafCount());
+            return out.size();
+        }
+    }
+
+    /**
+     * Reads a binary file by mapping it into memory and decoding the
+     * split flags and leaf values straight out of the mapped buffer.
+     *
+     * @param file the file to read from
+     * @return the file's contents
+     * @throws IOException if the file cannot be read or isn't a valid binary file
+     */
+    public static RITBFile read(File file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Decodes a binary file's contents from a buffer.
+     *
+     * @param buffer buffer positioned at the start of the header
+     * @return the decoded contents
+     * @throws IOException if the buffer doesn't hold a valid binary file
+     */
+    public static RITBFile decode(ByteBuffer buffer) throws IOException
+    {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        //Error Check: Header is missing or has the wrong magic/version
+        if(buffer.remaining() < HEADER_SIZE)
+            throw new IOException("Compressed file is too short to be a RITB file!");
+        for(byte b : MAGIC)
+        {
+            if(buffer.get() != b)
+                throw new IOException("Compressed file is not a RITB file!");
+        }
+        int version = buffer.get();
+        if(version != VERSION)
+            throw new IOException("Unsupported RITB version " + version + "!");
+
+        //Error Check: Image is a square with a valid tree shape
+        int sideLength = buffer.getInt();
+        int nodeCount = buffer.getInt();
+        if(sideLength < 1 || Integer.bitCount(sideLength) != 1)
+            throw new IOException("Image provided is not a square!");
+        if(nodeCount < 1 || (nodeCount - 1) % 4 != 0)
+            throw new IOException("Compressed file has an invalid node count!");
+
+        int leafCount = (int) ((3L * nodeCount + 1) / 4);
+        if(buffer.remaining() < (long) flagBytes(nodeCount) + leafCount)
+            throw new IOException("Compressed file is truncated!");
+
+        //Split flags, packed back into 64 bit words
+        long[] splits = readFlags(buffer, nodeCount);
+
+        //Leaf values
+        byte[] leaves = new byte[leafCount];
+        buffer.get(leaves);
+
+        //Error Check: Split flags describe exactly one complete preorder tree
+        CompactQuadTree tree = new CompactQuadTree(splits, leaves, nodeCount, leafCount);
+        checkStructure(tree);
+
+        return new RITBFile(sideLength, tree);
+    }
+}
@@ -0,0 +1,543 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A color image stored in the multi-channel Rich Image Tool format (.ritc).
+ *
+ * Pixels have 3 (RGB) or 4 (RGBA) values of 0-255 each. Red and blue are
+ * stored as their differences to green, modulo 256, so gray and evenly
+ * tinted regions are flat in those channels and the values stay bytes.
+ * Channel 0 is green, which carries most of the luminance and stands in
+ * for it: it is stored first and can be read without the other channels.
+ *
+ * The channels are either compressed as separate quadtrees, each split
+ * only where its own channel varies, or as one joint quadtree split where
+ * any channel varies, with one leaf value per channel. Separate trees suit
+ * images whose channels vary in different places, a joint tree stores its
+ * structure only once. Channels are compressed and uncompressed at the
+ * same time, one task per channel.
+ *
+ * Layout, big endian:
+ *   magic "RITC" (4 bytes), version (1 byte), side length (4 bytes),
+ *   channel count (1 byte), joint flag (1 byte),
+ *   the length of each stream (4 bytes each), then the streams.
+ * Separate trees have one stream per channel: node count (4 bytes), split
+ * flags packed as in RITBFile, leaf values. A joint tree has a structure
+ * stream (node count and split flags) and then one stream of leaf values
+ * per channel. Files are read through a memory mapped buffer, so streams
+ * that aren't needed are never read.
+ */
+public class RITCFile
+{
+    /** First bytes of every color file */
+    private static final byte[] MAGIC = {'R', 'I', 'T', 'C'};
+
+    /** Current format version */
+    private static final int VERSION = 1;
+
+    /** Size of the header before the stream lengths in bytes */
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 4 + 1 + 1;
+
+    /** Names of the stored channels, in order */
+    private static final String[] CHANNEL_NAMES = {"green", "red-green", "blue-green", "alpha"};
+
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** Whether or not every channel shares the first one's split flags */
+    private final boolean joint;
+
+    /** One quadtree per stored channel */
+    private final CompactQuadTree[] channels;
+
+    /**
+     * Construct a color file's contents.
+     *
+     * @param sideLength the side length of the image
+     * @param joint whether or not every channel shares the first one's split flags
+     * @param channels one quadtree per stored channel
+     */
+    private RITCFile(int sideLength, boolean joint, CompactQuadTree[] channels)
+    {
+        this.sideLength = sideLength;
+        this.joint = joint;
+        this.channels = channels;
+    }
+
+    /**
+     * Get the side length of the image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get whether or not the channels share one tree structure.
+     *
+     * @return true for a joint tree, false for separate trees
+     */
+    public boolean isJoint() { return this.joint; }
+
+    /**
+     * Get the number of channels, 3 for RGB and 4 for RGBA.
+     *
+     * @return channel count
+     */
+    public int getChannelCount() { return this.channels.length; }
+
+    /**
+     * Get the quadtree of a stored channel.
+     *
+     * @param channel the channel's index, 0 for green
+     * @return the channel's quadtree
+     */
+    public CompactQuadTree getChannel(int channel) { return this.channels[channel]; }
+
+    /**
+     * Get the name of a stored channel.
+     *
+     * @param channel the channel's index, 0 for green
+     * @return the channel's name
+     */
+    public static String getChannelName(int channel) { return CHANNEL_NAMES[channel]; }
+
+    /**
+     * Counts the values stored, as if each tree was written in preorder:
+     * one per node of separate trees, or one per split node and one per
+     * channel for each leaf of a joint tree.
+     *
+     * @return number of values stored
+     */
+    public long getValueCount()
+    {
+        if(joint)
+        {
+            CompactQuadTree structure = channels[0];
+            return structure.getNodeCount() - structure.getLeafCount() + (long) channels.length * structure.getLeafCount();
+        }
+
+        long count = 0;
+        for(CompactQuadTree channel : channels)
+            count += channel.getNodeCount();
+        return count;
+    }
+
+    /**
+     * Compresses a color image, one task per channel.
+     *
+     * @param values the pixels row by row, each given as its red, green, blue and, for RGBA, alpha value
+     * @param channelCount values per pixel, 3 or 4
+     * @param sideLength the side length of the image, a power of two
+     * @param joint true for one tree shared by every channel, false for one tree per channel
+     * @return the compressed image
+     * @throws IllegalArgumentException if the values aren't a square image of valid pixels
+     */
+    public static RITCFile compress(int[] values, int channelCount, int sideLength, boolean joint)
+    {
+        //Error Check: Image is a square of whole pixels with valid values
+        if(channelCount < 3 || channelCount > CHANNEL_NAMES.length)
+            throw new IllegalArgumentException("Color images have 3 or 4 channels!");
+        if(sideLength < 1 || Integer.bitCount(sideLength) != 1 || values.length != channelCount * sideLength * sideLength)
+            throw new IllegalArgumentException("Image provided is not a square!");
+        for(int val : values)
+        {
+            if(val < 0 || val > 255)
+                throw new IllegalArgumentException("Image contains invalid pixel value! (Valid pixel value: 0-255)");
+        }
+
+        CompactQuadTree[] channels = new CompactQuadTree[channelCount];
+        if(joint)
+        {
+            //One tree over every channel's value packed into an int, then one leaf stream per channel
+            int[][] packed = new int[sideLength][sideLength];
+            for(int pixel = 0; pixel < sideLength * sideLength; pixel++)
+            {
+                int key = 0;
+                for(int channel = 0; channel < channelCount; channel++)
+                    key |= forward(values, pixel * channelCount, channel) << (channel * 8);
+                packed[pixel / sideLength][pixel % sideLength] = key;
+            }
+            JointTree tree = new JointTree();
+            tree.compress(packed, 0, 0, sideLength);
+            tree.trim();
+            Arrays.parallelSetAll(channels, (channel) -> tree.toChannel(channel));
+        }
+        else
+        {
+            //Each channel is transformed and compressed on its own
+            Arrays.parallelSetAll(channels, (channel) ->
+            {
+                int[][] plane = new int[sideLength][sideLength];
+                for(int pixel = 0; pixel < sideLength * sideLength; pixel++)
+                    plane[pixel / sideLength][pixel % sideLength] = forward(values, pixel * channelCount, channel);
+                return CompactQuadTree.compress(plane, sideLength);
+            });
+        }
+
+        return new RITCFile(sideLength, joint, channels);
+    }
+
+    /**
+     * Converts the compressed image back into pixels, one task per channel.
+     *
+     * @return the pixels row by row, each given as its red, green, blue and, for RGBA, alpha value
+     */
+    public byte[] uncompress()
+    {
+        int[][][] planes = new int[channels.length][][];
+        Arrays.parallelSetAll(planes, (channel) -> channels[channel].uncompress(new int[sideLength][sideLength], sideLength));
+
+        //Adds green back to the red and blue differences
+        byte[] values = new byte[channels.length * sideLength * sideLength];
+        for(int row = 0; row < sideLength; row++)
+        {
+            for(int col = 0; col < sideLength; col++)
+            {
+                int pixel = (row * sideLength + col) * channels.length;
+                int green = planes[0][row][col];
+                values[pixel] = (byte) (planes[1][row][col] + green);
+                values[pixel + 1] = (byte) green;
+                values[pixel + 2] = (byte) (planes[2][row][col] + green);
+                if(channels.length > 3)
+                    values[pixel + 3] = (byte) planes[3][row][col];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets one stored channel's value of a pixel.
+     *
+     * @param values the pixels' red, green, blue and alpha values
+     * @param pixel index of the pixel's red value
+     * @param channel the stored channel, 0 for green
+     * @return the stored value, 0-255
+     */
+    private static int forward(int[] values, int pixel, int channel)
+    {
+        int green = values[pixel + 1];
+        if(channel == 0)
+            return green;
+        if(channel == 1)
+            return (values[pixel] - green) & 0xFF;
+        if(channel == 2)
+            return (values[pixel + 2] - green) & 0xFF;
+        return values[pixel + 3];
+    }
+
+    /**
+     * Writes the header and the channel streams to a file.
+     *
+     * @param file the file to write to
+     * @return number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(File file) throws IOException
+    {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            //Header
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(sideLength);
+            out.writeByte(channels.length);
+            out.writeByte(joint ? 1 : 0);
+
+            //Stream lengths, so readers can skip the streams they don't need
+            if(joint)
+            {
+                out.writeInt(4 + RITBFile.flagBytes(channels[0].getNodeCount()));
+                for(CompactQuadTree channel : channels)
+                    out.writeInt(channel.getLeafCount());
+            }
+            else
+            {
+                for(CompactQuadTree channel : channels)
+                    out.writeInt(4 + RITBFile.flagBytes(channel.getNodeCount()) + channel.getLeafCount());
+            }
+
+            //Streams: the shared structure once, or each channel's own
+            for(int channel = 0; channel < channels.length; channel++)
+            {
+                CompactQuadTree tree = channels[channel];
+                if(!joint || channel == 0)
+                {
+                    out.writeInt(tree.getNodeCount());
+                    RITBFile.writeFlags(out, tree);
+                }
+                if(!joint)
+                    out.write(tree.leafBytes(), 0, tree.getLeafCount());
+            }
+            if(joint)
+            {
+                for(CompactQuadTree channel : channels)
+                    out.write(channel.leafBytes(), 0, channel.getLeafCount());
+            }
+            return out.size();
+        }
+    }
+
+    /**
+     * Reads a color file with every channel.
+     *
+     * @param file the file to read from
+     * @return the file's contents
+     * @throws IOException if the file cannot be read or isn't a valid color file
+     */
+    public static RITCFile read(File file) throws IOException
+    {
+        return read(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads only the green channel of a color file, the luminance
+     * stand-in, as a grayscale image. The other channels' streams are
+     * skipped.
+     *
+     * @param file the file to read from
+     * @return the green channel's side length and quadtree
+     * @throws IOException if the file cannot be read or isn't a valid color file
+     */
+    public static RITBFile readLuminance(File file) throws IOException
+    {
+        RITCFile contents = read(file, 1);
+        return new RITBFile(contents.getSideLength(), contents.getChannel(0));
+    }
+
+    /**
+     * Reads a color file's first channels by mapping it into memory.
+     *
+     * @param file the file to read from
+     * @param wanted most channels to decode
+     * @return the file's contents, with at most the wanted number of channels
+     * @throws IOException if the file cannot be read or isn't a valid color file
+     */
+    private static RITCFile read(File file, int wanted) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer, wanted);
+        }
+    }
+
+    /**
+     * Decodes a color file's first channels from a buffer.
+     *
+     * @param buffer buffer positioned at the start of the header
+     * @param wanted most channels to decode
+     * @return the decoded contents
+     * @throws IOException if the buffer doesn't hold a valid color file
+     */
+    private static RITCFile decode(ByteBuffer buffer, int wanted) throws IOException
+    {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        //Error Check: Header is missing or has the wrong magic/version
+        if(buffer.remaining() < HEADER_SIZE)
+            throw new IOException("Compressed file is too short to be a RITC file!");
+        for(byte b : MAGIC)
+        {
+            if(buffer.get() != b)
+                throw new IOException("Compressed file is not a RITC file!");
+        }
+        int version = buffer.get();
+        if(version != VERSION)
+            throw new IOException("Unsupported RITC version " + version + "!");
+
+        //Error Check: Image is a square with 3 or 4 channels
+        int sideLength = buffer.getInt();
+        int channelCount = buffer.get();
+        boolean joint = buffer.get() != 0;
+        if(sideLength < 1 || Integer.bitCount(sideLength) != 1)
+            throw new IOException("Image provided is not a square!");
+        if(channelCount < 3 || channelCount > CHANNEL_NAMES.length)
+            throw new IOException("Compressed file has an invalid channel count!");
+
+        //Stream offsets, from the lengths table
+        int streamCount = joint ? channelCount + 1 : channelCount;
+        if(buffer.remaining() < 4L * streamCount)
+            throw new IOException("Compressed file is truncated!");
+        long[] offsets = new long[streamCount + 1];
+        offsets[0] = HEADER_SIZE + 4L * streamCount;
+        for(int stream = 0; stream < streamCount; stream++)
+            offsets[stream + 1] = offsets[stream] + (buffer.getInt() & 0xFFFFFFFFL);
+        if(offsets[streamCount] > buffer.limit())
+            throw new IOException("Compressed file is truncated!");
+
+        CompactQuadTree[] channels = new CompactQuadTree[Math.min(wanted, channelCount)];
+        if(joint)
+        {
+            buffer.position((int) offsets[0]);
+            CompactQuadTree structure = readStream(buffer, offsets[1], false);
+            for(int channel = 0; channel < channels.length; channel++)
+            {
+                //Error Check: Every channel has one value per leaf
+                if(offsets[channel + 2] - offsets[channel + 1] != structure.getLeafCount())
+                    throw new IOException("Compressed file has an invalid leaf count!");
+                buffer.position((int) offsets[channel + 1]);
+                byte[] leaves = new byte[structure.getLeafCount()];
+                buffer.get(leaves);
+                channels[channel] = new CompactQuadTree(structure.splitWords(), leaves, structure.getNodeCount(), structure.getLeafCount());
+            }
+        }
+        else
+        {
+            for(int channel = 0; channel < channels.length; channel++)
+            {
+                buffer.position((int) offsets[channel]);
+                channels[channel] = readStream(buffer, offsets[channel + 1], true);
+            }
+        }
+
+        return new RITCFile(sideLength, joint, channels);
+    }
+
+    /**
+     * Reads a stream's node count and split flags, and its leaf values
+     * when they follow the flags.
+     *
+     * @param buffer buffer positioned at the start of the stream
+     * @param end offset of the end of the stream
+     * @param withLeaves whether or not the leaf values follow the flags
+     * @return the stream's quadtree, its leaf values all 0 if the stream has none
+     * @throws IOException if the stream isn't a valid tree
+     */
+    private static CompactQuadTree readStream(ByteBuffer buffer, long end, boolean withLeaves) throws IOException
+    {
+        //Error Check: Stream is long enough for its tree
+        if(end - buffer.position() < 4)
+            throw new IOException("Compressed file is truncated!");
+        int nodeCount = buffer.getInt();
+        if(nodeCount < 1 || (nodeCount - 1) % 4 != 0)
+            throw new IOException("Compressed file has an invalid node count!");
+        int leafCount = (int) ((3L * nodeCount + 1) / 4);
+        long length = 4L + RITBFile.flagBytes(nodeCount) + (withLeaves ? leafCount : 0);
+        if(end - buffer.position() + 4 != length)
+            throw new IOException("Compressed file has an invalid stream length!");
+
+        long[] splits = RITBFile.readFlags(buffer, nodeCount);
+        byte[] leaves = new byte[leafCount];
+        if(withLeaves)
+            buffer.get(leaves);
+
+        CompactQuadTree tree = new CompactQuadTree(splits, leaves, nodeCount, leafCount);
+        RITBFile.checkStructure(tree);
+        return tree;
+    }
+
+    /**
+     * A quadtree over packed multi-channel values, built bottom up like
+     * CompactQuadTree: a split is undone when its four children turn out
+     * to be equal leaves.
+     */
+    private static class JointTree
+    {
+        /** Bit i is set if preorder node i is split */
+        private long[] splits = new long[16];
+
+        /** Packed leaf values in preorder */
+        private int[] leaves = new int[1024];
+
+        /** Number of nodes and leaves so far */
+        private int nodeCount = 0, leafCount = 0;
+
+        /**
+         * Appends the quadtree of a region of the image.
+         *
+         * @param packed each pixel's channel values, 8 bits each
+         * @param rowStart the row component of the region's starting coordinates
+         * @param colStart the col component of the region's starting coordinates
+         * @param sideLength the side length of the region
+         */
+        void compress(int[][] packed, int rowStart, int colStart, int sideLength)
+        {
+            //Base case: This region is a single pixel
+            if(sideLength == 1)
+            {
+                appendLeaf(packed[rowStart][colStart]);
+                return;
+            }
+
+            //Recursive case: Appends the split node and its children
+            int nodeStart = nodeCount;
+            int leafStart = leafCount;
+            int childLength = sideLength/2;
+            appendSplit();
+            compress(packed, rowStart, colStart, childLength);
+            compress(packed, rowStart, colStart + childLength, childLength);
+            compress(packed, rowStart + childLength, colStart, childLength);
+            compress(packed, rowStart + childLength, colStart + childLength, childLength);
+
+            //The four children are the same leaf in every channel, combine them into one leaf
+            if(nodeCount == nodeStart + 5 && leaves[leafStart] == leaves[leafStart + 1]
+                    && leaves[leafStart + 1] == leaves[leafStart + 2] && leaves[leafStart + 2] == leaves[leafStart + 3])
+            {
+                int val = leaves[leafStart];
+                splits[nodeStart >>> 6] &= ~(1L << nodeStart);
+                nodeCount = nodeStart;
+                leafCount = leafStart;
+                appendLeaf(val);
+            }
+        }
+
+        /**
+         * Appends a split node.
+         */
+        private void appendSplit()
+        {
+            if((nodeCount >>> 6) >= splits.length)
+                splits = Arrays.copyOf(splits, splits.length * 2);
+            splits[nodeCount >>> 6] |= 1L << nodeCount;
+            nodeCount++;
+        }
+
+        /**
+         * Appends a leaf.
+         *
+         * @param val the leaf's packed channel values
+         */
+        private void appendLeaf(int val)
+        {
+            if((nodeCount >>> 6) >= splits.length)
+                splits = Arrays.copyOf(splits, splits.length * 2);
+            if(leafCount == leaves.length)
+                leaves = Arrays.copyOf(leaves, leaves.length * 2);
+            nodeCount++;
+            leaves[leafCount++] = val;
+        }
+
+        /**
+         * Drops the unused room at the end of the split flags.
+         */
+        void trim()
+        {
+            splits = Arrays.copyOf(splits, (nodeCount + 63) >>> 6);
+        }
+
+        /**
+         * Gets one channel of the tree, sharing its split flags.
+         *
+         * @param channel the channel's index
+         * @return the channel's quadtree
+         */
+        CompactQuadTree toChannel(int channel)
+        {
+            byte[] values = new byte[leafCount];
+            for(int leaf = 0; leaf < leafCount; leaf++)
+                values[leaf] = (byte) (leaves[leaf] >>> (channel * 8));
+            return new CompactQuadTree(splits, values, nodeCount, leafCount);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.io.File;
+
+/**
+ * The on-disk layouts a compressed Rich Image Tool file can use.
+ * The layout of a file is chosen by its extension.
+ */
+public enum RITFormat
+{
+    /** Decimal preorder tokens, one per line */
+    TEXT(".rit"),
+
+    /** Packed preorder split flags and leaf bytes, see RITBFile */
+    BINARY(".ritb"),
+
+    /** Decimal level-order tokens with interior means, see ProgressiveDecoder */
+    PROGRESSIVE(".ritp"),
+
+    /** Decimal preorder tokens with back-references to repeated subtrees, see QuadTreeDag */
+    SHARED(".ritd"),
+
+    /** Decimal preorder residuals against the parent means, see PredictiveCoder */
+    PREDICTIVE(".ritr"),
+
+    /** Packed color channels, one quadtree each or one shared, see RITCFile */
+    COLOR(".ritc");
+
+    /** File extension of this layout */
+    private final String extension;
+
+    /**
+     * Construct a layout with its file extension.
+     *
+     * @param extension the file extension, including the dot
+     */
+    RITFormat(String extension)
+    {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the file extension of this layout.
+     *
+     * @return the file extension, including the dot
+     */
+    public String getExtension() { return this.extension; }
+
+    /**
+     * Determines the layout of a file from its extension.
+     * Unknown extensions are treated as the text layout.
+     *
+     * @param file the file to check
+     * @return the file's layout
+     */
+    public static RITFormat forFile(File file)
+    {
+        String name = file.getName().toLowerCase();
+        for(RITFormat format : values())
+        {
+            if(format != TEXT && name.endsWith(format.extension))
+                return format;
+        }
+        return TEXT;
+    }
+}
@@ -0,0 +1,272 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A quadtree token stream stored with a static Huffman code.
+ *
+ * Layout, big endian:
+ *   magic "RITH" (4 bytes), version (1 byte),
+ *   side length (4 bytes), token count (4 bytes),
+ *   smallest token (4 bytes), alphabet size (2 bytes),
+ *   code length of each token from the smallest up (1 byte each),
+ *   the tokens' canonical Huffman codes, most significant bit first.
+ *
+ * Any token alphabet can be stored, the preorder .rit tokens (-1 to 255)
+ * being the usual one. The code is built from the file's own token
+ * frequencies, so skewed images such as ones that are mostly black or
+ * white take well under a byte per node. The magic lets readers tell
+ * these files apart from text ones whatever their extension.
+ */
+public class RITHFile
+{
+    /** First bytes of every Huffman coded file */
+    private static final byte[] MAGIC = {'R', 'I', 'T', 'H'};
+
+    /** Current format version */
+    private static final int VERSION = 1;
+
+    /** Size of the header before the code lengths in bytes */
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 4 + 4 + 4 + 2;
+
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** The quadtree tokens */
+    private final int[] tokens;
+
+    /**
+     * Construct a Huffman coded file's contents.
+     *
+     * @param sideLength the side length of the image
+     * @param tokens the quadtree tokens
+     */
+    public RITHFile(int sideLength, int[] tokens)
+    {
+        this.sideLength = sideLength;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Construct the contents holding a quadtree's preorder tokens.
+     *
+     * @param sideLength the side length of the image
+     * @param root the root of the quadtree
+     * @return the file's contents
+     */
+    public static RITHFile fromNode(int sideLength, RITQTNode root)
+    {
+        int[] tokens = new int[1024];
+        int size = 0;
+
+        //Walks the tree in preorder with an explicit stack
+        RITQTNode[] stack = new RITQTNode[64];
+        int top = 0;
+        stack[top++] = root;
+        while(top > 0)
+        {
+            RITQTNode node = stack[--top];
+            if(size == tokens.length)
+                tokens = Arrays.copyOf(tokens, size * 2);
+            tokens[size++] = node.getVal();
+            if(node.getVal() == SPLIT_VALUE && node.getUpperLeft() != null)
+            {
+                if(top + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = node.getLowerRight();
+                stack[top++] = node.getLowerLeft();
+                stack[top++] = node.getUpperRight();
+                stack[top++] = node.getUpperLeft();
+            }
+        }
+
+        return new RITHFile(sideLength, Arrays.copyOf(tokens, size));
+    }
+
+    /**
+     * Get the side length of the image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get the quadtree tokens.
+     *
+     * @return the tokens
+     */
+    public int[] getTokens() { return this.tokens; }
+
+    /**
+     * Checks whether or not a file starts with the Huffman coded magic.
+     *
+     * @param file the file to check
+     * @return true if the file is Huffman coded
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isHuffman(File file) throws IOException
+    {
+        byte[] start = new byte[MAGIC.length];
+        try(InputStream in = new FileInputStream(file))
+        {
+            return in.readNBytes(start, 0, start.length) == start.length && Arrays.equals(start, MAGIC);
+        }
+    }
+
+    /**
+     * Maps the tokens onto the symbols 0 to alphabetSize - 1, where
+     * the smallest token becomes symbol 0.
+     *
+     * @return each token's symbol
+     * @throws IOException if there are too many distinct tokens to code
+     */
+    private int[] symbols() throws IOException
+    {
+        int min = Arrays.stream(tokens).min().orElse(0);
+        int max = Arrays.stream(tokens).max().orElse(0);
+        if((long) max - min >= (1 << 16) - 1)
+            throw new IOException("Too many distinct tokens to Huffman code!");
+        int[] symbols = new int[tokens.length];
+        for(int i = 0; i < tokens.length; i++)
+            symbols[i] = tokens[i] - min;
+        return symbols;
+    }
+
+    /**
+     * Builds the Huffman code of a run of symbols from their frequencies.
+     *
+     * @param symbols the symbols to code
+     * @return the code
+     */
+    private static HuffmanCode code(int[] symbols)
+    {
+        long[] frequencies = new long[Arrays.stream(symbols).max().orElse(0) + 1];
+        for(int symbol : symbols)
+            frequencies[symbol]++;
+        return HuffmanCode.fromFrequencies(frequencies);
+    }
+
+    /**
+     * Counts the bits the coded tokens take, without the header and code.
+     *
+     * @return size of the coded tokens in bits
+     * @throws IOException if there are too many distinct tokens to code
+     */
+    public long payloadBits() throws IOException
+    {
+        int[] symbols = symbols();
+        return code(symbols).bitCount(symbols);
+    }
+
+    /**
+     * Writes the header, the code and the coded tokens to a file.
+     *
+     * @param file the file to write to
+     * @return number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(File file) throws IOException
+    {
+        int[] symbols = symbols();
+        HuffmanCode code = code(symbols);
+        int[] lengths = code.getLengths();
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            //Header
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(sideLength);
+            out.writeInt(tokens.length);
+            out.writeInt(Arrays.stream(tokens).min().orElse(0));
+            out.writeShort(lengths.length);
+            for(int length : lengths)
+                out.writeByte(length);
+
+            //Coded tokens
+            out.write(code.encode(symbols));
+            return out.size();
+        }
+    }
+
+    /**
+     * Reads a Huffman coded file through a memory mapped buffer.
+     *
+     * @param file the file to read from
+     * @return the file's contents
+     * @throws IOException if the file cannot be read or isn't a valid Huffman coded file
+     */
+    public static RITHFile read(File file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Decodes a Huffman coded file's contents from a buffer.
+     *
+     * @param buffer buffer positioned at the start of the header
+     * @return the decoded contents
+     * @throws IOException if the buffer doesn't hold a valid Huffman coded file
+     */
+    public static RITHFile decode(ByteBuffer buffer) throws IOException
+    {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        //Error Check: Header is missing or has the wrong magic/version
+        if(buffer.remaining() < HEADER_SIZE)
+            throw new IOException("Compressed file is too short to be a RITH file!");
+        for(byte b : MAGIC)
+        {
+            if(buffer.get() != b)
+                throw new IOException("Compressed file isn't a RITH file!");
+        }
+        int version = buffer.get();
+        if(version != VERSION)
+            throw new IOException("Unsupported RITH version: " + version);
+
+        //Error Check: Sizes must be positive and the code lengths present
+        int sideLength = buffer.getInt();
+        int tokenCount = buffer.getInt();
+        int min = buffer.getInt();
+        int alphabetSize = buffer.getShort() & 0xFFFF;
+        if(sideLength <= 0 || tokenCount <= 0 || alphabetSize == 0)
+            throw new IOException("Compressed file has an invalid RITH header!");
+        if(buffer.remaining() < alphabetSize)
+            throw new IOException("Compressed file is missing its Huffman code!");
+
+        int[] lengths = new int[alphabetSize];
+        for(int symbol = 0; symbol < alphabetSize; symbol++)
+            lengths[symbol] = buffer.get() & 0xFF;
+        HuffmanCode code;
+        try
+        {
+            code = new HuffmanCode(lengths);
+        }
+        catch(IllegalArgumentException e) { throw new IOException(e.getMessage()); }
+
+        //Decodes the symbols and maps them back onto the tokens
+        int[] tokens = code.decode(buffer, tokenCount);
+        for(int i = 0; i < tokenCount; i++)
+            tokens[i] += min;
+        return new RITHFile(sideLength, tokens);
+    }
+}
@@ -0,0 +1,514 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An index of the byte offsets of the subtrees in a .rit file, down to a
+ * fixed depth, used to decode a rectangle of the image without reading the
+ * whole file.
+ *
+ * The index holds every node of the quadtree whose depth is at most the
+ * index depth, in preorder, with its value and the byte offset of its token.
+ * A region decode walks these nodes, skips the ones that don't overlap the
+ * rectangle, and reads from the .rit file only the deepest indexed subtrees
+ * that do. The cost follows the size of the rectangle, not of the image.
+ *
+ * The index is kept in a sidecar file next to the .rit file (name.rit.idx):
+ *   magic "RITI" (4 bytes), version (1 byte), side length (4 bytes),
+ *   depth (4 bytes), .rit file length (8 bytes), .rit last modified time
+ *   (8 bytes), entry count (4 bytes),
+ *   then per entry the byte offset (8 bytes) and value (2 bytes).
+ * Indexed files must start with the image size header, like RITUncompress reads.
+ */
+public class RITIndex
+{
+    /** Depth used when no depth is given */
+    public static final int DEFAULT_DEPTH = 5;
+
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /** First bytes of every index file */
+    private static final byte[] MAGIC = {'R', 'I', 'T', 'I'};
+
+    /** Current index version */
+    private static final int VERSION = 2;
+
+    /** The side length of the image */
+    private final int sideLength;
+
+    /** Deepest indexed level, the root being level 0 */
+    private final int depth;
+
+    /** Length of the indexed .rit file, used to detect a stale index */
+    private final long fileLength;
+
+    /** Last modified time of the indexed .rit file, used to detect a stale index */
+    private final long lastModified;
+
+    /** Byte offset of each indexed node's token, in preorder */
+    private final long[] offsets;
+
+    /** Value of each indexed node, in preorder */
+    private final int[] values;
+
+    /**
+     * Construct an index from its entries.
+     *
+     * @param sideLength the side length of the image
+     * @param depth deepest indexed level
+     * @param fileLength length of the indexed .rit file
+     * @param lastModified last modified time of the indexed .rit file
+     * @param offsets byte offset of each indexed node's token, in preorder
+     * @param values value of each indexed node, in preorder
+     */
+    private RITIndex(int sideLength, int depth, long fileLength, long lastModified, long[] offsets, int[] values)
+    {
+        this.sideLength = sideLength;
+        this.depth = depth;
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    /**
+     * Get the side length of the indexed image.
+     *
+     * @return the side length
+     */
+    public int getSideLength() { return this.sideLength; }
+
+    /**
+     * Get the deepest indexed level.
+     *
+     * @return the index depth
+     */
+    public int getDepth() { return this.depth; }
+
+    /**
+     * Get the number of indexed nodes.
+     *
+     * @return entry count
+     */
+    public int getEntryCount() { return this.offsets.length; }
+
+    /**
+     * Get the sidecar index file of a .rit file.
+     *
+     * @param rit the .rit file
+     * @return the index file next to it
+     */
+    public static File indexFileFor(File rit)
+    {
+        return new File(rit.getPath() + ".idx");
+    }
+
+    /**
+     * Builds the index of a .rit file by reading it once.
+     *
+     * @param rit the .rit file, starting with the image size header
+     * @param depth deepest level to index
+     * @return the index
+     * @throws IOException if the file cannot be read or isn't a valid .rit file
+     */
+    public static RITIndex build(File rit, int depth) throws IOException
+    {
+        if(depth < 0)
+            throw new IllegalArgumentException("Index depth must not be negative");
+
+        //Taken before reading, so a rewrite during the read makes the index stale
+        long fileLength = rit.length();
+        long lastModified = rit.lastModified();
+
+        try(TokenReader tokens = new TokenReader(rit))
+        {
+            //Error Check: Image is a square
+            int size = tokens.nextInt();
+            int sideLength = (int) Math.sqrt(size);
+            if(sideLength * sideLength != size)
+                throw new IOException("Image provided is not a square!");
+
+            Builder builder = new Builder();
+            builder.visit(tokens, 0, depth);
+            return new RITIndex(sideLength, depth, fileLength, lastModified,
+                    Arrays.copyOf(builder.offsets, builder.count), Arrays.copyOf(builder.values, builder.count));
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Image file contains a non-integer!");
+        }
+        catch(NoSuchElementException e)
+        {
+            throw new IOException("Quadtree is missing values!");
+        }
+    }
+
+    /**
+     * Collects index entries while reading a .rit file.
+     */
+    private static class Builder
+    {
+        /** Byte offset of each entry */
+        private long[] offsets = new long[64];
+
+        /** Value of each entry */
+        private int[] values = new int[64];
+
+        /** Number of entries */
+        private int count = 0;
+
+        /**
+         * Reads the node under the token reader and its descendants,
+         * adding an entry for every node down to the index depth.
+         *
+         * @param tokens the token reader, positioned before the node's token
+         * @param level the node's level
+         * @param depth deepest level to index
+         * @throws IOException if a value is invalid
+         */
+        void visit(TokenReader tokens, int level, int depth) throws IOException
+        {
+            tokens.hasNext();
+            long offset = tokens.position();
+            int val = readValue(tokens);
+
+            if(level <= depth)
+            {
+                if(count == offsets.length)
+                {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                offsets[count] = offset;
+                values[count++] = val;
+            }
+
+            if(val == SPLIT_VALUE)
+            {
+                for(int quadrant = 0; quadrant < 4; quadrant++)
+                    visit(tokens, level + 1, depth);
+            }
+        }
+    }
+
+    /**
+     * Reads and checks one quadtree value.
+     *
+     * @param tokens the token reader
+     * @return the value, -1 or 0-255
+     * @throws IOException if the value is invalid
+     */
+    private static int readValue(TokenReader tokens) throws IOException
+    {
+        int val = tokens.nextInt();
+        if(val != SPLIT_VALUE && (val < 0 || val > 255))
+            throw new IOException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+        return val;
+    }
+
+    /**
+     * Writes this index to a sidecar file.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException
+    {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(sideLength);
+            out.writeInt(depth);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            out.writeInt(offsets.length);
+            for(int i = 0; i < offsets.length; i++)
+            {
+                out.writeLong(offsets[i]);
+                out.writeShort(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads an index from a sidecar file.
+     *
+     * @param file the file to read from
+     * @return the index
+     * @throws IOException if the file cannot be read or isn't an index file
+     */
+    public static RITIndex read(File file) throws IOException
+    {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            for(byte b : MAGIC)
+            {
+                if(in.readByte() != b)
+                    throw new IOException("Index file is not a RITI file!");
+            }
+            if(in.readByte() != VERSION)
+                throw new IOException("Unsupported RITI version!");
+
+            int sideLength = in.readInt();
+            int depth = in.readInt();
+            long fileLength = in.readLong();
+            long lastModified = in.readLong();
+            int count = in.readInt();
+            long[] offsets = new long[count];
+            int[] values = new int[count];
+            for(int i = 0; i < count; i++)
+            {
+                offsets[i] = in.readLong();
+                values[i] = in.readShort();
+            }
+            return new RITIndex(sideLength, depth, fileLength, lastModified, offsets, values);
+        }
+    }
+
+    /**
+     * Checks whether or not this index was built from a .rit file as it
+     * is now, judged by its length and last modified time.
+     *
+     * @param rit the .rit file
+     * @return true if the file hasn't changed since it was indexed
+     */
+    public boolean matches(File rit)
+    {
+        return rit.length() == fileLength && rit.lastModified() == lastModified;
+    }
+
+    /**
+     * Get the index of a .rit file, from its sidecar file when that is
+     * present, current and matches the file, otherwise built in memory.
+     *
+     * @param rit the .rit file
+     * @return the index
+     * @throws IOException if the file cannot be read or isn't a valid .rit file
+     */
+    public static RITIndex load(File rit) throws IOException
+    {
+        File sidecar = indexFileFor(rit);
+        if(sidecar.isFile())
+        {
+            //A sidecar from an older version is rebuilt like a stale one
+            try
+            {
+                RITIndex index = read(sidecar);
+                if(index.matches(rit))
+                    return index;
+            }
+            catch(IOException e) { }
+        }
+        return build(rit, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Decodes a rectangle of a .rit file's image, reading only the
+     * subtrees that overlap it.
+     *
+     * @param rit the .rit file
+     * @param row the row of the rectangle's upper left corner
+     * @param col the col of the rectangle's upper left corner
+     * @param height the height of the rectangle
+     * @param width the width of the rectangle
+     * @return the rectangle's pixels, as a height x width array
+     * @throws IOException if the file cannot be read or isn't a valid .rit file
+     */
+    public static int[][] decodeRegion(File rit, int row, int col, int height, int width) throws IOException
+    {
+        return load(rit).decode(rit, row, col, height, width);
+    }
+
+    /**
+     * Decodes a rectangle of the indexed image.
+     *
+     * @param rit the indexed .rit file
+     * @param row the row of the rectangle's upper left corner
+     * @param col the col of the rectangle's upper left corner
+     * @param height the height of the rectangle
+     * @param width the width of the rectangle
+     * @return the rectangle's pixels, as a height x width array
+     * @throws IOException if the file cannot be read or doesn't match the index
+     */
+    public int[][] decode(File rit, int row, int col, int height, int width) throws IOException
+    {
+        //Error Check: Rectangle lies inside the image
+        if(row < 0 || col < 0 || height < 1 || width < 1
+                || (long) row + height > sideLength || (long) col + width > sideLength)
+            throw new IllegalArgumentException("Region lies outside the " + sideLength + "x" + sideLength + " image!");
+        if(!matches(rit))
+            throw new IOException("Index doesn't match the compressed file!");
+
+        try(FileChannel channel = FileChannel.open(rit.toPath(), StandardOpenOption.READ))
+        {
+            Region region = new Region(channel, row, col, height, width);
+            region.walk(new int[1], 0, 0, sideLength, 0);
+            return region.pixels;
+        }
+    }
+
+    /**
+     * A rectangle being decoded.
+     */
+    private class Region
+    {
+        /** The indexed .rit file */
+        private final FileChannel channel;
+
+        /** The row of the rectangle's upper left corner */
+        private final int row;
+
+        /** The col of the rectangle's upper left corner */
+        private final int col;
+
+        /** The rectangle's pixels */
+        private final int[][] pixels;
+
+        /**
+         * Construct an empty rectangle.
+         *
+         * @param channel the indexed .rit file
+         * @param row the row of the rectangle's upper left corner
+         * @param col the col of the rectangle's upper left corner
+         * @param height the height of the rectangle
+         * @param width the width of the rectangle
+         */
+        Region(FileChannel channel, int row, int col, int height, int width)
+        {
+            this.channel = channel;
+            this.row = row;
+            this.col = col;
+            this.pixels = new int[height][width];
+        }
+
+        /**
+         * Checks whether or not a square of the image overlaps the rectangle.
+         *
+         * @param rowStart the row component of the square's starting coordinates
+         * @param colStart the col component of the square's starting coordinates
+         * @param size the side length of the square
+         * @return true if they overlap
+         */
+        boolean overlaps(int rowStart, int colStart, int size)
+        {
+            return rowStart < row + pixels.length && rowStart + size > row
+                    && colStart < col + pixels[0].length && colStart + size > col;
+        }
+
+        /**
+         * Fills the part of a square of one color that lies in the rectangle.
+         *
+         * @param rowStart the row component of the square's starting coordinates
+         * @param colStart the col component of the square's starting coordinates
+         * @param size the side length of the square
+         * @param val the square's color
+         */
+        void fill(int rowStart, int colStart, int size, int val)
+        {
+            int top = Math.max(rowStart, row) - row;
+            int bottom = Math.min(rowStart + size, row + pixels.length) - row;
+            int left = Math.max(colStart, col) - col;
+            int right = Math.min(colStart + size, col + pixels[0].length) - col;
+            for(int r = top; r < bottom; r++)
+                Arrays.fill(pixels[r], left, right, val);
+        }
+
+        /**
+         * Walks the indexed node under the cursor, advancing the cursor past
+         * its indexed descendants, and decodes it if it overlaps the rectangle.
+         *
+         * @param cursor index of the next entry
+         * @param rowStart the row component of the node's starting coordinates
+         * @param colStart the col component of the node's starting coordinates
+         * @param size the side length of the node
+         * @param level the node's level
+         * @throws IOException if the file cannot be read
+         */
+        void walk(int[] cursor, int rowStart, int colStart, int size, int level) throws IOException
+        {
+            int entry = cursor[0]++;
+            int val = values[entry];
+            boolean overlaps = overlaps(rowStart, colStart, size);
+
+            //Leaf: the index already holds its color
+            if(val != SPLIT_VALUE)
+            {
+                if(overlaps)
+                    fill(rowStart, colStart, size, val);
+                return;
+            }
+
+            //Deepest indexed split: reads just this subtree's bytes
+            if(level == depth)
+            {
+                if(overlaps)
+                {
+                    long end = entry + 1 < offsets.length ? offsets[entry + 1] : fileLength;
+                    ByteBuffer bytes = ByteBuffer.allocate((int) (end - offsets[entry]));
+                    int read = 0;
+                    while(bytes.hasRemaining() && read >= 0)
+                        read = channel.read(bytes, offsets[entry] + bytes.position());
+                    TokenReader tokens = new TokenReader(new ByteArrayInputStream(bytes.array(), 0, bytes.position()),
+                            bytes.position());
+                    try
+                    {
+                        decode(tokens, rowStart, colStart, size);
+                    }
+                    catch(NumberFormatException | NoSuchElementException e)
+                    {
+                        throw new IOException("Index doesn't match the compressed file!");
+                    }
+                }
+                return;
+            }
+
+            //Indexed split: walks each quadrant
+            int childLength = size/2;
+            walk(cursor, rowStart, colStart, childLength, level + 1);
+            walk(cursor, rowStart, colStart + childLength, childLength, level + 1);
+            walk(cursor, rowStart + childLength, colStart, childLength, level + 1);
+            walk(cursor, rowStart + childLength, colStart + childLength, childLength, level + 1);
+        }
+
+        /**
+         * Decodes a subtree read from the file into the rectangle.
+         *
+         * @param tokens the subtree's tokens
+         * @param rowStart the row component of the subtree's starting coordinates
+         * @param colStart the col component of the subtree's starting coordinates
+         * @param size the side length of the subtree
+         * @throws IOException if a value is invalid
+         */
+        void decode(TokenReader tokens, int rowStart, int colStart, int size) throws IOException
+        {
+            int val = readValue(tokens);
+            if(val != SPLIT_VALUE)
+            {
+                if(overlaps(rowStart, colStart, size))
+                    fill(rowStart, colStart, size, val);
+                return;
+            }
+
+            int childLength = size/2;
+            decode(tokens, rowStart, colStart, childLength);
+            decode(tokens, rowStart, colStart + childLength, childLength);
+            decode(tokens, rowStart + childLength, colStart, childLength);
+            decode(tokens, rowStart + childLength, colStart + childLength, childLength);
+        }
+    }
+}
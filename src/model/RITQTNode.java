@@ -137,6 +137,39 @@ public class RITQTNode {
         return image;
     }
 
+    /**
+     * Checks that a quadtree value is a split or a pixel value.
+     *
+     * @param val the quadtree value
+     * @return the same value
+     * @throws IllegalArgumentException if the value isn't -1 or 0-255
+     */
+    public static int checkValue(int val)
+    {
+        if(val != SPLIT_VALUE && (val < 0 || val > 255))
+            throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+        return val;
+    }
+
+    /**
+     * Given the preorder values of a quadtree, creates the quadtree.
+     * Every reader of preorder tokens goes through here, so they all
+     * accept the same values.
+     *
+     * @param values Quadtree values, positioned at this node's value
+     * @return Quadtree node
+     * @throws IllegalArgumentException if a value isn't a split or a pixel value
+     * @throws java.util.NoSuchElementException if the values end before the quadtree does
+     */
+    public static RITQTNode parse(TokenCursor values)
+    {
+        int val = checkValue(values.next());
+
+        if(val == SPLIT_VALUE)
+            return new RITQTNode(val, parse(values), parse(values), parse(values), parse(values));
+        return new RITQTNode(val);
+    }
+
     /**
      * Assuming this quadtree is the root,
      * this 2D image array is converted to a quadtree representation
@@ -150,9 +183,26 @@ public class RITQTNode {
         return compress(image, 0, 0, sideLength);
     }
 
+    /**
+     * Assuming this quadtree is the root, this 2D image array is converted
+     * to a lossy quadtree representation: a region is combined into the mean
+     * of its pixels when they differ by at most the tolerance.
+     *
+     * @param image the 2D image array to read from
+     * @param sideLength the side length of this quadtree
+     * @param tolerance largest allowed difference between pixels of a combined region
+     * @return the quadtree representation of this image
+     */
+    public static RITQTNode compress(int[][] image, int sideLength, int tolerance)
+    {
+        return new QuadTreeCompressor(image, tolerance).compress(0, 0, sideLength);
+    }
+
     /**
      * Converts the 2D image array into a quadtree
-     * rowStart/colStart/size values are used to determine this quadtree's position
+     * rowStart/colStart/size values are used to determine this quadtree's position.
+     * Uniform regions are found before any nodes are created, so only the
+     * nodes of the final quadtree are allocated (see QuadTreeCompressor).
      *
      * @param rowStart the row component of this quadtree's starting coordinates
      * @param colStart the col component of this quadtree's starting coordinates
@@ -161,33 +211,33 @@ public class RITQTNode {
      */
     public static RITQTNode compress(int[][] image, int rowStart, int colStart, int sideLength)
     {
-        //Base case: This quadtree has sideLength = 1
-        if(sideLength == 1)
-            return new RITQTNode(image[rowStart][colStart]);
-
-        //Recursive case: Processing of children nodes required
-        int childLength = sideLength/2;
-        RITQTNode ul = compress(image, rowStart, colStart, childLength);
-        RITQTNode ur = compress(image, rowStart, colStart + childLength, childLength);
-        RITQTNode ll = compress(image, rowStart + childLength, colStart, childLength);
-        RITQTNode lr = compress(image, rowStart + childLength, colStart + childLength, childLength);
-
-        //Case 1: The four subsections are the same non-leaf nodes, combine children nodes
-        if(ul.getVal() != -1 && ul.getVal() == ur.getVal() && ur.getVal() == ll.getVal() && ll.getVal() == lr.getVal())
-            return new RITQTNode(ul.getVal());
-        //Case 2: The four subsections aren't the same, return this parent node
-        else
-            return new RITQTNode(-1, ul, ur, ll, lr);
+        return new QuadTreeCompressor(image).compress(rowStart, colStart, sideLength);
     }
 
     @Override
     public String toString()
     {
-        //Base case: Not an interior node
-        if(this.val != -1)
-            return this.val + " ";
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends this quadtree's preorder values, each followed by a space.
+     *
+     * @param builder the builder to append to
+     */
+    private void appendTo(StringBuilder builder)
+    {
+        builder.append(this.val).append(' ');
+
         //Recursive case: An interior node
-        else
-            return this.val + " " + this.ul.toString() + this.ur.toString() + this.ll.toString() + this.lr.toString();
+        if(this.val == -1)
+        {
+            this.ul.appendTo(builder);
+            this.ur.appendTo(builder);
+            this.ll.appendTo(builder);
+            this.lr.appendTo(builder);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes a preorder quadtree token stream straight into pixels,
+ * without building a tree or a full image.
+ *
+ * Regions still to be decoded are kept on an explicit (row, col, size)
+ * stack. A preorder stream finishes the whole top half of the image before
+ * the bottom half starts, so pixels are collected in bands of half the
+ * image's rows and each band is handed to a sink as soon as it's complete.
+ * At most one band (sideLength * sideLength / 2 bytes) is held in memory.
+ */
+public class StreamingDecoder
+{
+    /** Value of an interior node */
+    private static final int SPLIT_VALUE = -1;
+
+    /**
+     * Receives the decoded image one band of rows at a time, top to bottom.
+     */
+    public interface BandSink
+    {
+        /**
+         * Accepts a complete band of rows.
+         *
+         * @param pixels row-major pixels of the band, one byte each
+         * @param firstRow index of the band's first row in the image
+         * @param rowCount number of rows in the band
+         * @throws IOException if the band cannot be written
+         */
+        void accept(byte[] pixels, int firstRow, int rowCount) throws IOException;
+    }
+
+    /**
+     * Decodes a quadtree token stream, positioned at the root's value.
+     * Tokens after the end of the tree are left unread.
+     *
+     * @param tokens the token stream
+     * @param sideLength the side length of the image
+     * @param sink receives each band of decoded rows
+     * @return number of tokens decoded
+     * @throws IOException if the sink fails
+     * @throws IllegalArgumentException if a value is invalid or the tree is too deep
+     * @throws NumberFormatException if a token isn't an integer
+     * @throws java.util.NoSuchElementException if the stream ends before the tree does
+     */
+    public static int decode(TokenReader tokens, int sideLength, BandSink sink) throws IOException
+    {
+        int bandRows = Math.max(sideLength / 2, 1);
+        byte[] band = new byte[bandRows * sideLength];
+        int bandStart = 0;
+        int tokenCount = 0;
+
+        //Pending regions as (row, col, size) triples, 3 per level of the tree plus the root
+        int levels = Integer.numberOfTrailingZeros(Integer.highestOneBit(sideLength));
+        int[] stack = new int[3 * (3 * levels + 1)];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = 0;
+        stack[top++] = sideLength;
+
+        while(top > 0)
+        {
+            int size = stack[--top];
+            int colStart = stack[--top];
+            int rowStart = stack[--top];
+
+            //The region starts below the band, so the band is complete
+            if(rowStart >= bandStart + bandRows)
+            {
+                sink.accept(band, bandStart, bandRows);
+                bandStart += bandRows;
+            }
+
+            int val = tokens.nextInt();
+            tokenCount++;
+
+            //Split region: pushes the quadrants so the upper left comes off first
+            if(val == SPLIT_VALUE)
+            {
+                if(size == 1)
+                    throw new IllegalArgumentException("Quadtree is deeper than the image!");
+                int childLength = size / 2;
+                for(int quadrant = 3; quadrant >= 0; quadrant--)
+                {
+                    stack[top++] = rowStart + (quadrant / 2) * childLength;
+                    stack[top++] = colStart + (quadrant % 2) * childLength;
+                    stack[top++] = childLength;
+                }
+            }
+            //Leaf region: fills its rows of the band, handing on each band it completes
+            else
+            {
+                if(val < 0 || val > 255)
+                    throw new IllegalArgumentException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+                for(int row = rowStart; row < rowStart + size; row++)
+                {
+                    //A root leaf covers more rows than one band holds
+                    if(row >= bandStart + bandRows)
+                    {
+                        sink.accept(band, bandStart, bandRows);
+                        bandStart += bandRows;
+                    }
+                    int offset = (row - bandStart) * sideLength + colStart;
+                    Arrays.fill(band, offset, offset + size, (byte) val);
+                }
+            }
+        }
+
+        sink.accept(band, bandStart, Math.min(bandRows, sideLength - bandStart));
+        return tokenCount;
+    }
+}
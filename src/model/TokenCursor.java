@@ -0,0 +1,62 @@
+package model;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Hands out the values of a primitive token array one at a time.
+ * Used to walk a preorder quadtree token list without removing
+ * elements from the front of a list.
+ */
+public class TokenCursor
+{
+    /** The tokens to walk over */
+    private final int[] tokens;
+
+    /** Index of the next token */
+    private int pos;
+
+    /**
+     * Construct a cursor positioned at the first token.
+     *
+     * @param tokens the tokens to walk over
+     */
+    public TokenCursor(int[] tokens)
+    {
+        this.tokens = tokens;
+        this.pos = 0;
+    }
+
+    /**
+     * Checks whether or not tokens remain.
+     *
+     * @return true if there is another token
+     */
+    public boolean hasNext() { return this.pos < this.tokens.length; }
+
+    /**
+     * Get the index of the next token.
+     *
+     * @return number of tokens already consumed
+     */
+    public int position() { return this.pos; }
+
+    /**
+     * Get the number of tokens not yet consumed.
+     *
+     * @return number of remaining tokens
+     */
+    public int remaining() { return this.tokens.length - this.pos; }
+
+    /**
+     * Returns the next token and advances the cursor.
+     *
+     * @return the next token
+     * @throws NoSuchElementException if there are no tokens left
+     */
+    public int next()
+    {
+        if(pos >= tokens.length)
+            throw new NoSuchElementException();
+        return tokens[pos++];
+    }
+}
@@ -0,0 +1,214 @@
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads whitespace separated integer tokens from a byte stream.
+ *
+ * Bytes are pulled through a single reusable buffer and parsed in place,
+ * so no String or Integer objects are created per token. It offers the
+ * subset of Scanner used by the RIT readers (hasNext/nextInt), plus
+ * readAll which collects the remaining tokens into a primitive array.
+ */
+public class TokenReader implements Closeable
+{
+    /** Size of the read buffer in bytes */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The stream tokens are read from */
+    private final InputStream in;
+
+    /** Raw bytes read from the stream */
+    private final byte[] buffer;
+
+    /** Index of the next unread byte in the buffer */
+    private int pos = 0;
+
+    /** Number of valid bytes in the buffer */
+    private int limit = 0;
+
+    /** Number of bytes consumed before the current buffer */
+    private long consumed = 0;
+
+    /** Number of tokens read so far */
+    private int tokenCount = 0;
+
+    /**
+     * Construct a token reader over a stream.
+     *
+     * @param in the stream to read from
+     */
+    public TokenReader(InputStream in)
+    {
+        this(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a token reader over a stream with a given buffer size,
+     * for streams known to be small.
+     *
+     * @param in the stream to read from
+     * @param bufferSize size of the read buffer in bytes
+     */
+    public TokenReader(InputStream in, int bufferSize)
+    {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, 1)];
+    }
+
+    /**
+     * Construct a token reader over a file.
+     *
+     * @param file the file to read from
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    public TokenReader(File file) throws FileNotFoundException
+    {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Get the number of bytes consumed from the stream so far.
+     *
+     * @return byte offset of the next unread byte
+     */
+    public long position() { return this.consumed + this.pos; }
+
+    /**
+     * Get the number of tokens read so far.
+     *
+     * @return token count
+     */
+    public int getTokenCount() { return this.tokenCount; }
+
+    /**
+     * Refills the buffer once every byte in it has been consumed.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fill()
+    {
+        if(pos < limit)
+            return true;
+
+        try
+        {
+            consumed += limit;
+            pos = 0;
+            limit = Math.max(in.read(buffer), 0);
+        }
+        catch(IOException e) { throw new UncheckedIOException(e); }
+
+        return limit > 0;
+    }
+
+    /**
+     * Checks whether or not the byte is a token separator.
+     *
+     * @param b the byte to check
+     * @return true if the byte is whitespace
+     */
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    /**
+     * Checks whether or not another token is available,
+     * skipping any whitespace before it.
+     *
+     * @return true if there is another token
+     */
+    public boolean hasNext()
+    {
+        while(fill())
+        {
+            if(!isWhitespace(buffer[pos]))
+                return true;
+            pos++;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next token as an integer.
+     *
+     * @return the integer value of the next token
+     * @throws NumberFormatException if the token isn't an integer
+     * @throws NoSuchElementException if there are no tokens left
+     */
+    public int nextInt()
+    {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        tokenCount++;
+
+        boolean negative = false;
+        boolean digits = false;
+        boolean valid = true;
+        long value = 0;
+
+        //Optional sign
+        if(buffer[pos] == '-' || buffer[pos] == '+')
+        {
+            negative = buffer[pos] == '-';
+            pos++;
+        }
+
+        //Consumes the rest of the token, even when it is invalid
+        while(fill() && !isWhitespace(buffer[pos]))
+        {
+            byte b = buffer[pos++];
+            if(b >= '0' && b <= '9' && value <= Integer.MAX_VALUE + 1L)
+            {
+                value = value * 10 + (b - '0');
+                digits = true;
+            }
+            else
+                valid = false;
+        }
+
+        if(negative)
+            value = -value;
+        if(!valid || !digits || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new NumberFormatException("Token is not an integer");
+
+        return (int) value;
+    }
+
+    /**
+     * Reads every remaining token into an array.
+     *
+     * @return array containing each remaining token in order
+     * @throws NumberFormatException if a token isn't an integer
+     */
+    public int[] readAll()
+    {
+        int[] values = new int[1024];
+        int size = 0;
+
+        while(hasNext())
+        {
+            if(size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = nextInt();
+        }
+
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public void close()
+    {
+        try { in.close(); }
+        catch(IOException e) { throw new UncheckedIOException(e); }
+    }
+}
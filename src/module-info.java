@@ -1,4 +1,6 @@
 module RIT {
     requires transitive javafx.controls;
+    requires jdk.jfr;
+    requires jdk.management;
     exports gui;
 }
\ No newline at end of file
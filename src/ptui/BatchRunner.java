@@ -0,0 +1,277 @@
+package ptui;
+
+import model.PhaseStats;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts every file of a directory into another directory on a bounded
+ * pool of threads, so one JVM launch can handle a whole batch.
+ *
+ * Each file is converted on its own: a file that fails is reported and
+ * its partial output removed, and the rest of the batch carries on.
+ * Existing outputs are skipped unless overwriting is requested. Inputs
+ * that would share an output (x.rit and x.ritb) fail before anything is
+ * converted, all but the first in name order. Once every file is done a
+ * summary of the batch's throughput and its aggregate compression is
+ * printed.
+ */
+public class BatchRunner
+{
+    /**
+     * Converts one input file into one output file.
+     */
+    public interface Conversion
+    {
+        /**
+         * Converts a file, replacing any existing output.
+         *
+         * @param input the file to read
+         * @param output the file to write
+         * @return the image's raw size and its compressed size, in values
+         * @throws IOException if the file cannot be read, written or isn't valid
+         */
+        long[] convert(File input, File output) throws IOException;
+    }
+
+    /** What became of a file */
+    private enum Outcome { CONVERTED, SKIPPED, FAILED }
+
+    /**
+     * The outcome of converting one file.
+     */
+    private static class Result
+    {
+        /** What became of the file */
+        private final Outcome outcome;
+
+        /** Size of the input file in bytes */
+        private final long inputBytes;
+
+        /** The image's raw size in values */
+        private final long rawSize;
+
+        /** The image's compressed size in values */
+        private final long compressedSize;
+
+        /**
+         * Construct a file's result.
+         *
+         * @param outcome what became of the file
+         * @param inputBytes size of the input file in bytes
+         * @param rawSize the image's raw size in values
+         * @param compressedSize the image's compressed size in values
+         */
+        Result(Outcome outcome, long inputBytes, long rawSize, long compressedSize)
+        {
+            this.outcome = outcome;
+            this.inputBytes = inputBytes;
+            this.rawSize = rawSize;
+            this.compressedSize = compressedSize;
+        }
+    }
+
+    /** Directory the input files are read from */
+    private final File inputDirectory;
+
+    /** Directory the output files are written to */
+    private final File outputDirectory;
+
+    /** Extensions of the input files to convert, including the dot */
+    private final List<String> inputExtensions;
+
+    /** Extension given to the output files, including the dot */
+    private final String outputExtension;
+
+    /** Whether or not existing outputs are replaced */
+    private final boolean overwrite;
+
+    /** Number of worker threads */
+    private final int threads;
+
+    /**
+     * Construct a batch between two directories.
+     *
+     * @param inputDirectory directory the input files are read from
+     * @param outputDirectory directory the output files are written to
+     * @param inputExtensions extensions of the input files to convert
+     * @param outputExtension extension given to the output files
+     * @param overwrite whether or not existing outputs are replaced
+     * @param threads number of worker threads
+     */
+    public BatchRunner(File inputDirectory, File outputDirectory, String[] inputExtensions,
+                       String outputExtension, boolean overwrite, int threads)
+    {
+        if(threads < 1)
+            throw new IllegalArgumentException("Threads must be at least 1");
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.inputExtensions = Arrays.asList(inputExtensions);
+        this.outputExtension = outputExtension;
+        this.overwrite = overwrite;
+        this.threads = threads;
+    }
+
+    /**
+     * Get the extension of a file name, if it is one of the inputs'.
+     *
+     * @param name the file name
+     * @return the matching input extension, or null
+     */
+    private String inputExtension(String name)
+    {
+        for(String extension : inputExtensions)
+        {
+            if(name.toLowerCase().endsWith(extension))
+                return extension;
+        }
+        return null;
+    }
+
+    /**
+     * Get the output file of an input file.
+     *
+     * @param input the file to read
+     * @return the file to write
+     */
+    private File outputFor(File input)
+    {
+        String name = input.getName();
+        String baseName = name.substring(0, name.length() - inputExtension(name).length());
+        return new File(outputDirectory, baseName + outputExtension);
+    }
+
+    /**
+     * Converts a single file, reporting its outcome.
+     *
+     * @param input the file to read
+     * @param output the file to write
+     * @param conversion the conversion to apply
+     * @return the file's result
+     */
+    private Result convert(File input, File output, Conversion conversion)
+    {
+        String name = input.getName();
+
+        if(output.exists() && !overwrite)
+        {
+            System.out.println("Skipped: " + name + " (" + output.getName() + " already exists)");
+            return new Result(Outcome.SKIPPED, 0, 0, 0);
+        }
+
+        try
+        {
+            //Each file is one phase, so a Flight Recorder recording sees the batch file by file
+            PhaseStats.Phase phase = new PhaseStats("BatchRunner", input.getPath()).begin("convert");
+            long[] sizes = conversion.convert(input, output);
+            phase.end(input.length(), output.length(), sizes[1], 0);
+            System.out.println("Converted: " + name + " -> " + output.getName());
+            return new Result(Outcome.CONVERTED, input.length(), sizes[0], sizes[1]);
+        }
+        //Error Check: Only this file is given up on
+        catch(IOException | RuntimeException e)
+        {
+            output.delete();
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            System.out.println("Failed: " + name + ": " + message);
+            return new Result(Outcome.FAILED, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Converts every matching file of the input directory and prints
+     * a summary of the batch.
+     *
+     * @param conversion the conversion to apply to each file
+     * @return number of files that failed
+     * @throws IOException if a directory cannot be read or created
+     */
+    public int run(Conversion conversion) throws IOException
+    {
+        File[] files = inputDirectory.listFiles();
+        if(files == null)
+            throw new IOException("Program cannot find the directory specified!");
+        if(!outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+            throw new IOException("Program cannot create the output directory!");
+        Arrays.sort(files);
+
+        //Hands each matching file to the pool, unless an earlier file already writes its output
+        long start = System.nanoTime();
+        int failed = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> results = new ArrayList<Future<Result>>();
+        Map<String, File> writers = new HashMap<String, File>();
+        for(File file : files)
+        {
+            if(!file.isFile() || inputExtension(file.getName()) == null)
+                continue;
+
+            //Error Check: Two inputs would be converted onto the same output at once
+            File output = outputFor(file);
+            File writer = writers.putIfAbsent(output.getName(), file);
+            if(writer != null)
+            {
+                System.out.println("Failed: " + file.getName() + ": " + output.getName() + " is already the output of " + writer.getName());
+                failed++;
+                continue;
+            }
+            results.add(pool.submit(() -> convert(file, output, conversion)));
+        }
+        pool.shutdown();
+
+        //Totals the results as they come in
+        int converted = 0;
+        int skipped = 0;
+        long inputBytes = 0;
+        long rawSize = 0;
+        long compressedSize = 0;
+        for(Future<Result> future : results)
+        {
+            Result result;
+            try
+            {
+                result = future.get();
+            }
+            catch(InterruptedException e)
+            {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IOException("Batch was interrupted!");
+            }
+            catch(ExecutionException e) { throw new IllegalStateException(e.getCause()); }
+
+            if(result.outcome == Outcome.CONVERTED)
+                converted++;
+            else if(result.outcome == Outcome.SKIPPED)
+                skipped++;
+            else
+                failed++;
+            inputBytes += result.inputBytes;
+            rawSize += result.rawSize;
+            compressedSize += result.compressedSize;
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+        //Displays batch stats
+        System.out.println("Files: " + converted + " converted, " + skipped + " skipped, " + failed + " failed");
+        System.out.printf("Time: %.3f s (%.1f files/s, %.2f MB/s)%n", seconds, converted / seconds,
+                inputBytes / 1e6 / seconds);
+        if(rawSize > 0)
+        {
+            System.out.println("Raw image size: " + rawSize);
+            System.out.println("Compressed image size: " + compressedSize);
+            System.out.println("Compression %: " + RITCompress.compressionRate(rawSize, compressedSize));
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,156 @@
+package ptui;
+
+import model.CompressedImage;
+import model.PhaseStats;
+import model.QuadTreeDiff;
+import model.QuadTreeMerge;
+import model.QuadTreeSummary;
+import model.RITQTNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Combines two compressed images pixel by pixel, or summarizes where they
+ * differ, without uncompressing them, see QuadTreeMerge and QuadTreeDiff.
+ */
+public class RITCombine
+{
+    /** Program usage */
+    private static final String USAGE = "Usage: java RITCombine (--min | --max | --average | --difference) [--verbose] [--stats[=text|json]] "
+            + "first.rit second.rit combined.(rit|ritb|ritp|ritd|ritr)\n"
+            + "       java RITCombine --select [--verbose] [--stats[=text|json]] mask.rit first.rit second.rit combined.(rit|ritb|ritp|ritd|ritr)\n"
+            + "       java RITCombine --diff [--regions=D] [--stats[=text|json]] first.rit second.rit";
+
+    /**
+     * Reads a compressed image, exiting if it cannot be read.
+     *
+     * @param file the compressed file, in any layout
+     * @return the image's side length and quadtree
+     */
+    public static CompressedImage readImage(File file)
+    {
+        CompressedImage image = null;
+
+        try
+        {
+            image = CompressedImage.read(file);
+        }
+        //Error Check: The provided file cannot be read or isn't a valid compressed image
+        catch(IOException e)
+        {
+            System.out.println(file.exists() ? e.getMessage() : "Program cannot find the file specified!");
+            System.exit(-1);
+        }
+
+        return image;
+    }
+
+    public static void main(String[] args)
+    {
+        //Separates options from file arguments
+        String operation = null;
+        int regionDepth = QuadTreeDiff.DEFAULT_REGION_DEPTH;
+        boolean verbose = false;
+        String stats = null;
+        ArrayList<String> files = new ArrayList<String>();
+        for(String arg : args)
+        {
+            if(arg.equals("--min") || arg.equals("--max") || arg.equals("--average") || arg.equals("--difference")
+                    || arg.equals("--select") || arg.equals("--diff"))
+                operation = arg.substring(2);
+            else if(arg.startsWith("--regions="))
+                regionDepth = RITCompress.intOption(arg, 0, USAGE);
+            else if(arg.equals("--verbose"))
+                verbose = true;
+            else if(arg.equals("--stats") || arg.equals("--stats=text"))
+                stats = "text";
+            else if(arg.equals("--stats=json"))
+                stats = "json";
+            else
+                files.add(arg);
+        }
+
+        //Error Check: One operation with its inputs, plus an output unless diffing
+        int inputCount = "select".equals(operation) ? 3 : 2;
+        int fileCount = "diff".equals(operation) ? inputCount : inputCount + 1;
+        if(operation == null || files.size() != fileCount)
+        {
+            System.out.println(USAGE);
+            System.exit(-1);
+        }
+
+        //Reads every input's quadtree
+        System.out.println("Combining: " + String.join(", ", files.subList(0, inputCount)));
+        PhaseStats timings = new PhaseStats("RITCombine", files.get(0));
+        PhaseStats.Phase phase = timings.begin("read");
+        CompressedImage[] images = new CompressedImage[inputCount];
+        long bytesIn = 0;
+        for(int i = 0; i < inputCount; i++)
+        {
+            images[i] = readImage(new File(files.get(i)));
+            bytesIn += new File(files.get(i)).length();
+
+            //Error Check: Images cover the same pixels
+            if(images[i].getSideLength() != images[0].getSideLength())
+            {
+                System.out.println("Images are not the same size!");
+                System.exit(-1);
+            }
+        }
+        int sideLength = images[0].getSideLength();
+        phase.end(bytesIn, 0, 0, 0);
+
+        //Only summarizes the differences
+        if("diff".equals(operation))
+        {
+            phase = timings.begin("diff");
+            QuadTreeDiff diff = QuadTreeDiff.of(images[0].getRoot(), images[1].getRoot(), sideLength, regionDepth);
+            phase.end(0, 0, 0, diff.getChangedBlocks());
+            System.out.println("Diff: " + diff);
+            for(long[] region : diff.getChangedRegions())
+                System.out.println("Changed region " + region[0] + "," + region[1] + " " + region[2] + "x" + region[2] + ": " + region[3] + " pixels");
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        phase = timings.begin(operation);
+        RITQTNode combined;
+        try
+        {
+            if("select".equals(operation))
+                combined = QuadTreeMerge.select(images[0].getRoot(), images[1].getRoot(), images[2].getRoot());
+            else if("min".equals(operation))
+                combined = QuadTreeMerge.min(images[0].getRoot(), images[1].getRoot());
+            else if("max".equals(operation))
+                combined = QuadTreeMerge.max(images[0].getRoot(), images[1].getRoot());
+            else if("average".equals(operation))
+                combined = QuadTreeMerge.average(images[0].getRoot(), images[1].getRoot());
+            else
+                combined = QuadTreeMerge.difference(images[0].getRoot(), images[1].getRoot());
+        }
+        //Error Check: A quadtree value isn't a pixel value
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+            return;
+        }
+        QuadTreeSummary summary = QuadTreeSummary.of(combined);
+        phase.end(0, 0, 0, summary.getNodeCount());
+        System.out.println("QTree: " + (verbose ? combined.toString() : summary));
+
+        //Writes the result in the output file's layout
+        File output = new File(files.get(inputCount));
+        phase = timings.begin("write");
+        int totalValues = RITTransform.writeQuadtree(combined, sideLength, output);
+        phase.end(0, output.length(), totalValues, summary.getNodeCount());
+        try{
+            System.out.println("Output file: " + output.getCanonicalPath());
+        }
+        catch (IOException e) { e.printStackTrace(); }
+        System.out.println("Compressed image size: " + totalValues);
+        RITCompress.printStats(timings, stats);
+    }
+}
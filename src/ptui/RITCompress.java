@@ -1,31 +1,77 @@
 package ptui;
 
+import model.CompactQuadTree;
+import model.ParallelCompressor;
+import model.PhaseStats;
+import model.PredictiveCoder;
+import model.QuadTreeDag;
+import model.QuadTreeSummary;
+import model.RITBFile;
+import model.RITCFile;
+import model.RITFormat;
+import model.RITHFile;
+import model.QuadTreeWriter;
 import model.RITQTNode;
+import model.TokenReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 public class RITCompress
 {
+    /** Program usage */
+    private static final String USAGE = "Usage: java RITCompress [--parallel[=N]] [--cutoff=S] [--tolerance=T] [--huffman] [--verbose] [--stats[=text|json]] "
+            + "uncompressed-file.txt compressed-file.(rit|ritb|ritp|ritd|ritr)\n"
+            + "       java RITCompress [--channels=3|4] [--joint] [--verbose] [--stats[=text|json]] uncompressed-color.txt compressed-file.ritc\n"
+            + "       java RITCompress --batch [--threads=N] [--overwrite] [--tolerance=T] input-dir output-dir";
+
     public static double compressionRate(int rawSize, int compressedSize)
     {
         return 100 * (1 - (double)compressedSize / rawSize);
     }
 
+    public static double compressionRate(long rawSize, long compressedSize)
+    {
+        return 100 * (1 - (double)compressedSize / rawSize);
+    }
+
+    /**
+     * Peak signal-to-noise ratio of a decoded image against the original,
+     * in decibels. Identical images have an infinite PSNR.
+     *
+     * @param original the original 2D image array
+     * @param decoded the decoded 2D image array
+     * @return the PSNR in dB
+     */
+    public static double psnr(int[][] original, int[][] decoded)
+    {
+        double squaredError = 0;
+        for(int row = 0; row < original.length; row++)
+        {
+            for(int col = 0; col < original[row].length; col++)
+            {
+                double diff = original[row][col] - decoded[row][col];
+                squaredError += diff * diff;
+            }
+        }
+
+        double meanSquaredError = squaredError / ((double) original.length * original.length);
+        return 10 * Math.log10(255.0 * 255.0 / meanSquaredError);
+    }
+
     /**
-     * Given an arraylist of pixel values,
-     * convert arraylist to a square 2d image array
+     * Given an array of pixel values,
+     * convert array to a square 2d image array
      *
-     * @param values the list of pixel values to be used
+     * @param values the pixel values to be used
      * @return a 2D array of pixel values
      */
-    public static int[][] listToImage(ArrayList<Integer> values)
+    public static int[][] listToImage(int[] values)
     {
         //Error Check: Provided image is not a square
-        double tempSideLength = Math.sqrt(values.size());
+        double tempSideLength = Math.sqrt(values.length);
         int sideLength = (int) tempSideLength;
         if(tempSideLength != sideLength)
         {
@@ -37,10 +83,7 @@ public class RITCompress
 
         for(int row = 0; row < sideLength; row++)
         {
-            for(int col = 0; col < sideLength; col++)
-            {
-                image[row][col] = (int)values.remove(0);
-            }
+            System.arraycopy(values, row * sideLength, image[row], 0, sideLength);
         }
 
         return image;
@@ -48,24 +91,23 @@ public class RITCompress
 
     /**
      * Given an uncompressed image text file,
-     * converts image into a list of pixel values.
+     * converts image into an array of pixel values.
      *
-     * @param file Scanner containing file to read from
-     * @return list containing each pixel value
+     * @param file TokenReader containing file to read from
+     * @return array containing each pixel value
      */
-    public static ArrayList<Integer> readFile(Scanner file)
+    public static int[] readFile(TokenReader file)
     {
-        ArrayList<Integer> image = new ArrayList<Integer>();
+        int[] image = null;
 
-        //Adds each pixel value to arraylist
+        //Reads every pixel value into an array
         try
         {
-            while(file.hasNext())
-            {
-                int val = Integer.parseInt(file.next());
-                image.add(val);
+            image = file.readAll();
 
-                //Error Check: pixel value isn't in range 0-255
+            //Error Check: pixel value isn't in range 0-255
+            for(int val : image)
+            {
                 if(val != -1 && (val < 0 || val > 255))
                 {
                     System.out.println("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
@@ -84,13 +126,15 @@ public class RITCompress
     }
 
     /**
-     * Given a quadtree, writes the quadtree to given file.
+     * Given a quadtree, writes it to the given file in level order
+     * after the image size header, for progressive viewing.
      *
      * @param root the quadtree data to use
+     * @param sideLength the side length of the image
      * @param file the file to write to
-     * @return number of values written
+     * @return number of quadtree values written
      */
-    public static int writeQuadtree(RITQTNode root, File file)
+    public static int writeProgressiveQuadtree(RITQTNode root, int sideLength, File file)
     {
         int totalValues = -1;
 
@@ -103,35 +147,511 @@ public class RITCompress
                 System.exit(-1);
             }
 
-            //Writes quadtree to file, using quadtree's string representation
-            FileWriter writer = new FileWriter(file);
-            String[] values = root.toString().split(" ");
-            for(int i = 0; i < values.length; i++)
+            //Writes the size header, then the quadtree level by level
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            writer.writeToken(sideLength * sideLength);
+            writer.writeLevelOrder(root, sideLength);
+            writer.close();
+            totalValues = writer.getTokenCount() - 1;
+        }
+        catch(IOException e){e.printStackTrace();}
+        //Error Check: Progressive files only hold pixel values 0-255
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            file.delete();
+            System.exit(-1);
+        }
+
+        return totalValues;
+    }
+
+    /**
+     * Given a quadtree, shares its identical subtrees and writes it to the
+     * given file after the image size header, repeated subtrees written as
+     * back-references.
+     *
+     * @param root the quadtree data to use
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of quadtree values written
+     */
+    public static int writeSharedQuadtree(RITQTNode root, int sideLength, File file)
+    {
+        int totalValues = -1;
+
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
             {
-                writer.write(values[i]);
-                if(i != values.length - 1)
-                    writer.write("\n");
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
             }
 
-            totalValues = values.length;
+            //Turns the quadtree into a DAG of distinct subtrees
+            int nodeCount = QuadTreeDag.countNodes(root);
+            QuadTreeDag dag = new QuadTreeDag();
+            RITQTNode shared = dag.intern(root);
+            System.out.println("Distinct nodes: " + dag.getDistinctCount() + " of " + nodeCount);
+
+            //Writes the size header, then the DAG in preorder
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            writer.writeToken(sideLength * sideLength);
+            writer.writeShared(shared);
             writer.close();
+            totalValues = writer.getTokenCount() - 1;
+        }
+        catch(IOException e){e.printStackTrace();}
+
+        return totalValues;
+    }
+
+    /**
+     * Given quadtree values, writes them to the given file with a
+     * static Huffman code built from their frequencies.
+     *
+     * @param tokens the quadtree values, in any of the token layouts
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of quadtree values written
+     */
+    public static int writeHuffmanQuadtree(int[] tokens, int sideLength, File file)
+    {
+        int totalValues = -1;
+
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Writes header, code lengths and coded values to file
+            RITHFile contents = new RITHFile(sideLength, tokens);
+            contents.write(file);
+            totalValues = tokens.length;
+            System.out.println("Bits per node: " + (double) contents.payloadBits() / totalValues);
+        }
+        catch(IOException e){e.printStackTrace();}
+
+        return totalValues;
+    }
+
+    /**
+     * Given a quadtree, writes it to the given file after the image size
+     * header as residuals against its parent means.
+     *
+     * @param tokens the quadtree's predictive values
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of quadtree values written
+     */
+    public static int writePredictiveQuadtree(int[] tokens, int sideLength, File file)
+    {
+        int totalValues = -1;
+
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Writes the size header, then the residuals in preorder
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            writer.writeToken(sideLength * sideLength);
+            for(int token : tokens)
+                writer.writeToken(token);
+            writer.close();
+            totalValues = writer.getTokenCount() - 1;
+        }
+        catch(IOException e){e.printStackTrace();}
+
+        return totalValues;
+    }
+
+    /**
+     * Converts a quadtree into predictive values.
+     *
+     * @param root the quadtree data to use
+     * @param sideLength the side length of the image
+     * @return the residuals in preorder
+     */
+    public static int[] predictiveTokens(RITQTNode root, int sideLength)
+    {
+        int[] tokens = null;
+
+        try
+        {
+            tokens = PredictiveCoder.encode(root, sideLength);
+        }
+        //Error Check: Residuals are only defined for pixel values 0-255
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Given a quadtree, writes the image size header and then the
+     * quadtree to given file.
+     *
+     * @param root the quadtree data to use
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of quadtree values written
+     */
+    public static int writeQuadtree(RITQTNode root, int sideLength, File file)
+    {
+        int totalValues = -1;
+
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Streams the size header, then quadtree values in preorder
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            writer.writeToken(sideLength * sideLength);
+            writer.write(root);
+            writer.close();
+            totalValues = writer.getTokenCount() - 1;
+        }
+        catch(IOException e){e.printStackTrace();}
+
+        return totalValues;
+    }
+
+    /**
+     * Given a compact quadtree, writes the quadtree to given file
+     * in the binary .ritb format.
+     *
+     * @param root the quadtree data to use
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of values written
+     */
+    public static int writeBinaryQuadtree(CompactQuadTree root, int sideLength, File file)
+    {
+        int totalValues = -1;
+
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Writes header, split flags and leaf values to file
+            new RITBFile(sideLength, root).write(file);
+            totalValues = root.getNodeCount();
         }
         catch(IOException e){e.printStackTrace();}
 
         return totalValues;
     }
 
+    /**
+     * Compresses a color image into a .ritc file, every channel at once,
+     * and prints its compression stats.
+     *
+     * @param timings the conversion's phase timings
+     * @param verbose whether or not each channel's whole quadtree is printed
+     * @param values the pixels row by row, each given as its red, green, blue and, for RGBA, alpha value
+     * @param channelCount values per pixel, 3 or 4
+     * @param joint true for one tree shared by every channel, false for one tree per channel
+     * @param file the file to write to
+     */
+    public static void writeColorQuadtree(PhaseStats timings, boolean verbose, int[] values, int channelCount, boolean joint, File file)
+    {
+        //Error Check: Provided image is not a square of whole pixels
+        int pixelCount = values.length / channelCount;
+        int sideLength = (int) Math.sqrt(pixelCount);
+        if(values.length % channelCount != 0 || sideLength * sideLength != pixelCount || pixelCount == 0)
+        {
+            System.out.println("Image provided is not a square!");
+            System.exit(-1);
+        }
+
+        PhaseStats.Phase phase = timings.begin("compress");
+        RITCFile contents = null;
+        try
+        {
+            contents = RITCFile.compress(values, channelCount, sideLength, joint);
+        }
+        //Error Check: Side isn't a power of two, or a value isn't in range 0-255
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        phase.end(0, 0, values.length, contents.getValueCount());
+
+        phase = timings.begin("toString");
+        for(int channel = 0; channel < contents.getChannelCount(); channel++)
+        {
+            CompactQuadTree tree = contents.getChannel(channel);
+            System.out.println("QTree " + RITCFile.getChannelName(channel) + ": " + (verbose ? tree.toString() : QuadTreeSummary.of(tree)));
+        }
+        phase.end(0, 0, 0, contents.getValueCount());
+
+        phase = timings.begin("write");
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Compressed file already exists!");
+                System.exit(-1);
+            }
+            contents.write(file);
+            System.out.println("Output file: " + file.getCanonicalPath());
+        }
+        catch(IOException e){e.printStackTrace();}
+        phase.end(0, file.length(), contents.getValueCount(), contents.getValueCount());
+
+        //Display compression stats
+        System.out.println("Raw image size: " + values.length);
+        System.out.println("Compressed image size: " + contents.getValueCount() + (joint ? " (joint tree)" : " (separate trees)"));
+        System.out.println("Compression %: " + compressionRate(values.length, contents.getValueCount()));
+    }
+
+    /**
+     * Compresses an uncompressed image file into a .rit file, replacing
+     * the output if it exists. Unlike the single file path, problems are
+     * reported by exception instead of exiting.
+     *
+     * @param input the uncompressed image file
+     * @param output the .rit file to write
+     * @param tolerance largest allowed difference between pixels of a combined region, 0 for lossless
+     * @return the image's raw size and its compressed size, in values
+     * @throws IOException if a file cannot be read or written, or the image isn't valid
+     */
+    public static long[] compressFile(File input, File output, int tolerance) throws IOException
+    {
+        int[] pixels;
+        try(TokenReader reader = new TokenReader(input))
+        {
+            pixels = readImage(reader);
+        }
+
+        int sideLength = (int) Math.sqrt(pixels.length);
+        RITQTNode root = RITQTNode.compress(listToImage(pixels), sideLength, tolerance);
+        //Writes the size header, like the single file path, so RITUncompress can read it back
+        try(QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(output)))
+        {
+            writer.writeToken(pixels.length);
+            writer.write(root);
+            return new long[] {pixels.length, writer.getTokenCount() - 1};
+        }
+    }
+
+    /**
+     * Reads and checks an uncompressed image. Unlike readFile, problems
+     * are reported by exception instead of exiting.
+     *
+     * @param reader the image file's token reader
+     * @return the pixel values of a square image
+     * @throws IOException if the file cannot be read or isn't a valid square image
+     */
+    public static int[] readImage(TokenReader reader) throws IOException
+    {
+        int[] pixels;
+        try
+        {
+            pixels = reader.readAll();
+        }
+        //Error Check: Image file contains non-int value
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Image file contains a non-integer!");
+        }
+
+        //Error Check: pixel value isn't in range 0-255
+        for(int val : pixels)
+        {
+            if(val != -1 && (val < 0 || val > 255))
+                throw new IOException("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
+        }
+
+        //Error Check: Provided image is not a square
+        int sideLength = (int) Math.sqrt(pixels.length);
+        if(sideLength * sideLength != pixels.length || pixels.length == 0)
+            throw new IOException("Image provided is not a square!");
+
+        return pixels;
+    }
+
+    /**
+     * Converts an image array into a quadtree, using a fork/join pool
+     * when a parallelism is given.
+     *
+     * @param image the 2D image array to compress
+     * @param sideLength the side length of the image
+     * @param parallelism number of worker threads, or 0 to compress on this thread
+     * @param cutoff side length at or below which regions are compressed sequentially
+     * @param tolerance largest allowed difference between pixels of a combined region, 0 for lossless
+     * @return the quadtree representation of the image
+     */
+    public static RITQTNode compress(int[][] image, int sideLength, int parallelism, int cutoff, int tolerance)
+    {
+        if(parallelism == 0)
+            return RITQTNode.compress(image, sideLength, tolerance);
+
+        try(ParallelCompressor compressor = new ParallelCompressor(parallelism, cutoff, tolerance))
+        {
+            return compressor.compress(image, sideLength);
+        }
+    }
+
+    /**
+     * Prints a conversion's phase timings, if they were asked for.
+     *
+     * @param timings the conversion's phase timings
+     * @param format "text" for a table, "json" for a JSON object, null to print nothing
+     */
+    static void printStats(PhaseStats timings, String format)
+    {
+        if("text".equals(format))
+            System.out.println(timings.toText());
+        else if("json".equals(format))
+            System.out.println(timings.toJson());
+    }
+
+    /**
+     * Reads the positive integer value of an --option=value argument,
+     * exiting with the program's usage if it isn't one.
+     *
+     * @param arg the argument to read
+     * @param usage the program's usage
+     * @return the option's value
+     */
+    static int intOption(String arg, String usage)
+    {
+        return intOption(arg, 1, usage);
+    }
+
+    /**
+     * Reads the integer value of an --option=value argument,
+     * exiting with the program's usage if it is missing or below the minimum.
+     *
+     * @param arg the argument to read
+     * @param min smallest allowed value
+     * @param usage the program's usage
+     * @return the option's value
+     */
+    static int intOption(String arg, int min, String usage)
+    {
+        try
+        {
+            int val = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            if(val >= min)
+                return val;
+        }
+        catch(NumberFormatException e) { }
+
+        System.out.println(usage);
+        System.exit(-1);
+        return -1;
+    }
+
     public static void main(String[] args)
     {
-        if (args.length != 2) {
-            System.out.println("Usage: java RITCompress uncompressed-file.txt compressed-file.rit");
+        //Separates options from file arguments
+        int parallelism = 0;
+        int cutoff = ParallelCompressor.DEFAULT_CUTOFF;
+        int tolerance = 0;
+        boolean batch = false;
+        boolean overwrite = false;
+        boolean huffman = false;
+        boolean verbose = false;
+        String stats = null;
+        int channels = 3;
+        boolean joint = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ArrayList<String> files = new ArrayList<String>();
+        for(String arg : args)
+        {
+            if(arg.equals("--batch"))
+                batch = true;
+            else if(arg.equals("--huffman"))
+                huffman = true;
+            else if(arg.equals("--verbose"))
+                verbose = true;
+            else if(arg.equals("--stats") || arg.equals("--stats=text"))
+                stats = "text";
+            else if(arg.equals("--stats=json"))
+                stats = "json";
+            else if(arg.equals("--overwrite"))
+                overwrite = true;
+            else if(arg.startsWith("--channels="))
+                channels = intOption(arg, 3, USAGE);
+            else if(arg.equals("--joint"))
+                joint = true;
+            else if(arg.startsWith("--threads="))
+                threads = intOption(arg, USAGE);
+            else if(arg.startsWith("--tolerance="))
+                tolerance = Math.min(intOption(arg, 0, USAGE), 255);
+            else if(arg.equals("--parallel"))
+                parallelism = Runtime.getRuntime().availableProcessors();
+            else if(arg.startsWith("--parallel="))
+                parallelism = intOption(arg, USAGE);
+            else if(arg.startsWith("--cutoff="))
+                cutoff = intOption(arg, USAGE);
+            else
+                files.add(arg);
+        }
+
+        if (files.size() != 2) {
+            System.out.println(USAGE);
+            System.exit(-1);
+        }
+
+        //Compresses every image of the input directory, one file per task
+        if(batch)
+        {
+            final int batchTolerance = tolerance;
+            BatchRunner runner = new BatchRunner(new File(files.get(0)), new File(files.get(1)),
+                    new String[] {".txt"}, RITFormat.TEXT.getExtension(), overwrite, threads);
+            try
+            {
+                if(runner.run((input, output) -> compressFile(input, output, batchTolerance)) > 0)
+                    System.exit(-1);
+            }
+            catch(IOException e)
+            {
+                System.out.println(e.getMessage());
+                System.exit(-1);
+            }
+            return;
+        }
+
+        //Error Check: Huffman coding keeps the preorder and residual layouts, and would drop any other
+        RITFormat outputFormat = RITFormat.forFile(new File(files.get(1)));
+        if(huffman && outputFormat != RITFormat.TEXT && outputFormat != RITFormat.PREDICTIVE)
+        {
+            System.out.println("Huffman coding only applies to .rit and .ritr files!");
             System.exit(-1);
         }
 
         //Creates file reader for image
-        Scanner input = null;
+        TokenReader input = null;
         try{
-            input = new Scanner(new File(args[0]));
+            input = new TokenReader(new File(files.get(0)));
         }
         //Error Check: The provided file cannot be found
         catch(FileNotFoundException e)
@@ -141,20 +661,81 @@ public class RITCompress
         }
 
         //Reads and stores file
-        System.out.println("Compressing: " + args[0]);
-        ArrayList<Integer> pixels = readFile(input);
+        System.out.println("Compressing: " + files.get(0));
+        PhaseStats timings = new PhaseStats("RITCompress", files.get(0));
+        PhaseStats.Phase phase = timings.begin("read");
+        int[] pixels = readFile(input);
+        input.close();
+        phase.end(input.position(), 0, pixels.length, 0);
+
+        //Color images are compressed into per-channel quadtrees, always losslessly
+        File output = new File(files.get(1));
+        if(RITFormat.forFile(output) == RITFormat.COLOR)
+        {
+            if(channels > 4 || tolerance > 0 || huffman)
+            {
+                System.out.println(USAGE);
+                System.exit(-1);
+            }
+            writeColorQuadtree(timings, verbose, pixels, channels, joint, output);
+            printStats(timings, stats);
+            return;
+        }
 
         //Converts list to image array
+        phase = timings.begin("image");
         int[][] image = listToImage(pixels);
         int sideLength = image.length;
+        phase.end(0, 0, pixels.length, 0);
+
+        //Converts image array to Quadtree and writes it in the output file's format
+        int totalValues;
+        int[][] decoded = null;
+        if(RITFormat.forFile(output) == RITFormat.BINARY)
+        {
+            phase = timings.begin("compress");
+            CompactQuadTree quadtree = parallelism == 0 && tolerance == 0 ? CompactQuadTree.compress(image, sideLength)
+                    : CompactQuadTree.fromNode(compress(image, sideLength, parallelism, cutoff, tolerance));
+            phase.end(0, 0, pixels.length, quadtree.getNodeCount());
+
+            phase = timings.begin("toString");
+            System.out.println("QTree: " + (verbose ? quadtree.toString() : QuadTreeSummary.of(quadtree)));
+            phase.end(0, 0, 0, quadtree.getNodeCount());
 
-        //Converts image array to Quadtree
-        RITQTNode quadtree = RITQTNode.compress(image, sideLength);
-        System.out.println("QTree: " + quadtree.toString());
+            phase = timings.begin("write");
+            totalValues = writeBinaryQuadtree(quadtree, sideLength, output);
+            phase.end(0, output.length(), totalValues, quadtree.getNodeCount());
+            if(tolerance > 0)
+                decoded = quadtree.uncompress(new int[sideLength][sideLength], sideLength);
+        }
+        else
+        {
+            phase = timings.begin("compress");
+            RITQTNode quadtree = compress(image, sideLength, parallelism, cutoff, tolerance);
+            QuadTreeSummary summary = QuadTreeSummary.of(quadtree);
+            phase.end(0, 0, pixels.length, summary.getNodeCount());
 
-        //Writes quadtree to text file
-        File output = new File(args[1]);
-        int totalValues = writeQuadtree(quadtree, output);
+            phase = timings.begin("toString");
+            System.out.println("QTree: " + (verbose ? quadtree.toString() : summary));
+            phase.end(0, 0, 0, summary.getNodeCount());
+
+            phase = timings.begin("write");
+            if(huffman && RITFormat.forFile(output) == RITFormat.PREDICTIVE)
+                totalValues = writeHuffmanQuadtree(predictiveTokens(quadtree, sideLength), sideLength, output);
+            else if(huffman)
+                totalValues = writeHuffmanQuadtree(RITHFile.fromNode(sideLength, quadtree).getTokens(), sideLength, output);
+            else if(RITFormat.forFile(output) == RITFormat.PREDICTIVE)
+                totalValues = writePredictiveQuadtree(predictiveTokens(quadtree, sideLength), sideLength, output);
+            else if(RITFormat.forFile(output) == RITFormat.PROGRESSIVE)
+                totalValues = writeProgressiveQuadtree(quadtree, sideLength, output);
+            else if(RITFormat.forFile(output) == RITFormat.SHARED)
+                totalValues = writeSharedQuadtree(quadtree, sideLength, output);
+            else
+                totalValues = writeQuadtree(quadtree, sideLength, output);
+            phase.end(0, output.length(), totalValues, summary.getNodeCount());
+            if(tolerance > 0)
+                decoded = quadtree.uncompress(new int[sideLength][sideLength], sideLength);
+        }
         try{
             System.out.println("Output file: " + output.getCanonicalPath());
         }
@@ -164,5 +745,8 @@ public class RITCompress
         System.out.println("Raw image size: " + sideLength * sideLength);
         System.out.println("Compressed image size: " + totalValues);
         System.out.println("Compression %: " + compressionRate(sideLength * sideLength, totalValues));
+        if(decoded != null)
+            System.out.println("PSNR (dB): " + psnr(image, decoded));
+        printStats(timings, stats);
     }
 }
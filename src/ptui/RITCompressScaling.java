@@ -0,0 +1,185 @@
+package ptui;
+
+import model.ParallelCompressor;
+import model.RITQTNode;
+import model.TokenReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Prints a scaling report for the fork/join compressor: the best time of
+ * several runs for every thread count from 1 to N, on the given image
+ * files plus synthetic gradient and noise images. Every parallel tree is
+ * checked against the sequential one.
+ */
+public class RITCompressScaling
+{
+    /** Number of timed runs per thread count */
+    private static final int RUNS = 5;
+
+    /** Side lengths of the synthetic images */
+    private static final int[] SYNTHETIC_SIZES = {1024, 2048};
+
+    /**
+     * Builds a synthetic diagonal gradient image, like incline256x256.
+     *
+     * @param sideLength the side length of the image
+     * @return the 2D image array
+     */
+    public static int[][] gradient(int sideLength)
+    {
+        int[][] image = new int[sideLength][sideLength];
+        for(int row = 0; row < sideLength; row++)
+        {
+            for(int col = 0; col < sideLength; col++)
+                image[row][col] = (row + col) * 255 / (2 * sideLength - 2);
+        }
+        return image;
+    }
+
+    /**
+     * Builds a synthetic image of random pixels.
+     *
+     * @param sideLength the side length of the image
+     * @param seed seed for the random values
+     * @return the 2D image array
+     */
+    public static int[][] noise(int sideLength, long seed)
+    {
+        Random random = new Random(seed);
+        int[][] image = new int[sideLength][sideLength];
+        for(int row = 0; row < sideLength; row++)
+        {
+            for(int col = 0; col < sideLength; col++)
+                image[row][col] = random.nextInt(256);
+        }
+        return image;
+    }
+
+    /**
+     * Checks whether or not two quadtrees have the same shape and values.
+     *
+     * @param a the first quadtree
+     * @param b the second quadtree
+     * @return true if the quadtrees are identical
+     */
+    private static boolean sameTree(RITQTNode a, RITQTNode b)
+    {
+        if(a.getVal() != b.getVal())
+            return false;
+        if(a.getUpperLeft() == null || b.getUpperLeft() == null)
+            return a.getUpperLeft() == b.getUpperLeft();
+        return sameTree(a.getUpperLeft(), b.getUpperLeft()) && sameTree(a.getUpperRight(), b.getUpperRight())
+                && sameTree(a.getLowerLeft(), b.getLowerLeft()) && sameTree(a.getLowerRight(), b.getLowerRight());
+    }
+
+    /**
+     * Times the compression of one image for every thread count
+     * and prints a row per thread count.
+     *
+     * @param name the image's name
+     * @param image the 2D image array
+     * @param maxThreads the largest thread count to time
+     * @param cutoff side length at or below which regions are compressed sequentially
+     */
+    private static void report(String name, int[][] image, int maxThreads, int cutoff)
+    {
+        int sideLength = image.length;
+        RITQTNode expected = RITQTNode.compress(image, sideLength);
+        double sequential = 0;
+
+        //Warms up the compiler before timing anything
+        for(int run = 0; run < RUNS; run++)
+            sameTree(expected, RITQTNode.compress(image, sideLength));
+
+        //Sequential baseline
+        for(int run = 0; run < RUNS; run++)
+        {
+            long start = System.nanoTime();
+            RITQTNode.compress(image, sideLength);
+            double millis = (System.nanoTime() - start) / 1e6;
+            sequential = run == 0 ? millis : Math.min(sequential, millis);
+        }
+        System.out.printf("%-24s %7s %10.2f ms%n", name, "seq", sequential);
+
+        //Fork/join with 1..N threads
+        for(int threads = 1; threads <= maxThreads; threads++)
+        {
+            double best = 0;
+            boolean identical = true;
+            try(ParallelCompressor compressor = new ParallelCompressor(threads, cutoff))
+            {
+                for(int run = 0; run < RUNS; run++)
+                {
+                    long start = System.nanoTime();
+                    RITQTNode result = compressor.compress(image, sideLength);
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    best = run == 0 ? millis : Math.min(best, millis);
+                    identical &= sameTree(expected, result);
+                }
+            }
+            System.out.printf("%-24s %7d %10.2f ms %6.2fx %s%n", name, threads, best, sequential / best,
+                    identical ? "" : "OUTPUT DIFFERS");
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        if(args.length == 0)
+        {
+            System.out.println("Usage: java RITCompressScaling max-threads [--cutoff=S] [uncompressed.txt ...]");
+            System.exit(-1);
+        }
+
+        int maxThreads = 0;
+        int cutoff = ParallelCompressor.DEFAULT_CUTOFF;
+        ArrayList<String> files = new ArrayList<String>();
+        try
+        {
+            maxThreads = Integer.parseInt(args[0]);
+            for(int i = 1; i < args.length; i++)
+            {
+                if(args[i].startsWith("--cutoff="))
+                    cutoff = Integer.parseInt(args[i].substring("--cutoff=".length()));
+                else
+                    files.add(args[i]);
+            }
+        }
+        catch(NumberFormatException e)
+        {
+            System.out.println("Thread count and cutoff must be integers!");
+            System.exit(-1);
+        }
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors()
+                + ", cutoff: " + cutoff);
+        System.out.printf("%-24s %7s %13s %7s%n", "image", "threads", "best time", "speedup");
+
+        //Provided image files
+        for(String name : files)
+        {
+            try
+            {
+                TokenReader reader = new TokenReader(new File(name));
+                int[][] image = RITCompress.listToImage(RITCompress.readFile(reader));
+                reader.close();
+                report(new File(name).getName(), image, maxThreads, cutoff);
+            }
+            catch(FileNotFoundException e)
+            {
+                System.out.println("Program cannot find the file specified!");
+                System.exit(-1);
+            }
+        }
+
+        //Synthetic images
+        for(int sideLength : SYNTHETIC_SIZES)
+        {
+            report("gradient" + sideLength, gradient(sideLength), maxThreads, cutoff);
+            report("noise" + sideLength, noise(sideLength, sideLength), maxThreads, cutoff);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ptui;
+
+import model.CompactQuadTree;
+import model.CompressedImage;
+import model.PhaseStats;
+import model.QuadTreeSummary;
+import model.QuadTreeTransform;
+import model.RITFormat;
+import model.RITQTNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Rotates, mirrors, inverts, thresholds, posterizes or crops a compressed
+ * image without uncompressing it, see QuadTreeTransform. Transforms are
+ * applied in the order given, and the result is written in the output
+ * file's layout.
+ */
+public class RITTransform
+{
+    /** Program usage */
+    private static final String USAGE = "Usage: java RITTransform [--rotate=90|180|270] [--mirror=h|v] [--invert] [--threshold=T] "
+            + "[--posterize=N] [--crop=row,col,size] [--verbose] [--stats[=text|json]] "
+            + "compressed.(rit|ritb|ritp|ritd|ritr|ritc) transformed.(rit|ritb|ritp|ritd|ritr)";
+
+    /**
+     * Applies one transform option to an image.
+     *
+     * @param image the image to transform
+     * @param option the transform option, such as --rotate=90
+     * @return the transformed image
+     * @throws IllegalArgumentException if the option's value isn't valid
+     */
+    public static CompressedImage apply(CompressedImage image, String option)
+    {
+        RITQTNode root = image.getRoot();
+        int sideLength = image.getSideLength();
+        String value = option.substring(option.indexOf('=') + 1);
+
+        if(option.startsWith("--rotate="))
+            return new CompressedImage(sideLength, QuadTreeTransform.rotate(root, Integer.parseInt(value)));
+        if(option.equals("--mirror=h"))
+            return new CompressedImage(sideLength, QuadTreeTransform.mirrorHorizontal(root));
+        if(option.equals("--mirror=v"))
+            return new CompressedImage(sideLength, QuadTreeTransform.mirrorVertical(root));
+        if(option.equals("--invert"))
+            return new CompressedImage(sideLength, QuadTreeTransform.invert(root));
+        if(option.startsWith("--threshold="))
+            return new CompressedImage(sideLength, QuadTreeTransform.threshold(root, Integer.parseInt(value)));
+        if(option.startsWith("--posterize="))
+            return new CompressedImage(sideLength, QuadTreeTransform.posterize(root, Integer.parseInt(value)));
+        if(option.startsWith("--crop="))
+        {
+            String[] bounds = value.split(",");
+            if(bounds.length != 3)
+                throw new IllegalArgumentException("Crop must be given as row,col,size!");
+            int size = Integer.parseInt(bounds[2].trim());
+            return new CompressedImage(size, QuadTreeTransform.crop(root, sideLength,
+                    Integer.parseInt(bounds[0].trim()), Integer.parseInt(bounds[1].trim()), size));
+        }
+        throw new IllegalArgumentException("Unknown transform " + option + "!");
+    }
+
+    /**
+     * Given a quadtree, writes it to the given file in the file's layout,
+     * after the image size header for the token layouts.
+     *
+     * @param root the quadtree data to use
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     * @return number of quadtree values written
+     */
+    public static int writeQuadtree(RITQTNode root, int sideLength, File file)
+    {
+        switch(RITFormat.forFile(file))
+        {
+            case BINARY:
+                return RITCompress.writeBinaryQuadtree(CompactQuadTree.fromNode(root), sideLength, file);
+            case PROGRESSIVE:
+                return RITCompress.writeProgressiveQuadtree(root, sideLength, file);
+            case SHARED:
+                return RITCompress.writeSharedQuadtree(root, sideLength, file);
+            case PREDICTIVE:
+                return RITCompress.writePredictiveQuadtree(RITCompress.predictiveTokens(root, sideLength), sideLength, file);
+            case COLOR:
+                //Error Check: Only the luminance of a color file is transformed
+                System.out.println("Transformed images cannot be written as color files!");
+                System.exit(-1);
+                return -1;
+            default:
+                return RITCompress.writeQuadtree(root, sideLength, file);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        //Separates transforms from file arguments, keeping their order
+        boolean verbose = false;
+        String stats = null;
+        ArrayList<String> transforms = new ArrayList<String>();
+        ArrayList<String> files = new ArrayList<String>();
+        for(String arg : args)
+        {
+            if(arg.equals("--verbose"))
+                verbose = true;
+            else if(arg.equals("--stats") || arg.equals("--stats=text"))
+                stats = "text";
+            else if(arg.equals("--stats=json"))
+                stats = "json";
+            else if(arg.startsWith("--"))
+                transforms.add(arg);
+            else
+                files.add(arg);
+        }
+
+        if(files.size() != 2 || transforms.isEmpty())
+        {
+            System.out.println(USAGE);
+            System.exit(-1);
+        }
+
+        //Reads the compressed image's quadtree
+        File input = new File(files.get(0));
+        File output = new File(files.get(1));
+        System.out.println("Transforming: " + files.get(0));
+        PhaseStats timings = new PhaseStats("RITTransform", files.get(0));
+        PhaseStats.Phase phase = timings.begin("read");
+        CompressedImage image = null;
+        try
+        {
+            image = CompressedImage.read(input);
+        }
+        //Error Check: The provided file cannot be read or isn't a valid compressed image
+        catch(IOException e)
+        {
+            System.out.println(input.exists() ? e.getMessage() : "Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        phase.end(input.length(), 0, 0, 0);
+
+        //Applies each transform to the quadtree in turn
+        for(String transform : transforms)
+        {
+            phase = timings.begin(transform.substring(2).replaceFirst("=.*", ""));
+            try
+            {
+                image = apply(image, transform);
+            }
+            //Error Check: Transform or its value isn't valid
+            catch(NumberFormatException e)
+            {
+                System.out.println(USAGE);
+                System.exit(-1);
+            }
+            catch(IllegalArgumentException e)
+            {
+                System.out.println(e.getMessage());
+                System.exit(-1);
+            }
+            phase.end(0, 0, 0, 0);
+        }
+
+        phase = timings.begin("toString");
+        QuadTreeSummary summary = QuadTreeSummary.of(image.getRoot());
+        System.out.println("QTree: " + (verbose ? image.getRoot().toString() : summary));
+        phase.end(0, 0, 0, summary.getNodeCount());
+
+        phase = timings.begin("write");
+        int totalValues = writeQuadtree(image.getRoot(), image.getSideLength(), output);
+        phase.end(0, output.length(), totalValues, summary.getNodeCount());
+        try{
+            System.out.println("Output file: " + output.getCanonicalPath());
+        }
+        catch (IOException e) { e.printStackTrace(); }
+        System.out.println("Image size: " + image.getSideLength() + "x" + image.getSideLength());
+        System.out.println("Compressed image size: " + totalValues);
+        RITCompress.printStats(timings, stats);
+    }
+}
@@ -1,60 +1,87 @@
 package ptui;
 
+import model.CompactQuadTree;
+import model.ParallelDecompressor;
+import model.PhaseStats;
+import model.PredictiveCoder;
+import model.ProgressiveDecoder;
+import model.QuadTreeDag;
+import model.QuadTreeSummary;
+import model.QuadTreeWriter;
+import model.RITBFile;
+import model.RITCFile;
+import model.RITFormat;
+import model.RITHFile;
+import model.RITIndex;
 import model.RITQTNode;
+import model.StreamingDecoder;
+import model.TokenCursor;
+import model.TokenReader;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 public class RITUncompress
 {
+    /** Program usage */
+    private static final String USAGE = "Usage: java RITUncompress [--verbose] [--stats[=text|json]] [--parallel[=N] | --stream | "
+            + "--region=row,col,height,width] compressed.(rit|ritb|ritp|ritd|ritr) uncompressed.txt\n"
+            + "       java RITUncompress [--luminance] [--verbose] [--stats[=text|json]] compressed.ritc uncompressed.txt\n"
+            + "       java RITUncompress --index[=depth] compressed.rit\n"
+            + "       java RITUncompress --batch [--threads=N] [--overwrite] input-dir output-dir";
 
     /**
      * Given a text representation of a quadtree,
-     * create a Quadtree from said text.
+     * create a Quadtree from said text, see RITQTNode.parse.
      *
-     * @param values Quadtree values
+     * @param values Quadtree values, positioned at the root's value
      * @return Quadtree node
      */
-    public static RITQTNode parse(ArrayList<Integer> values)
+    public static RITQTNode parse(TokenCursor values)
     {
-        int val = values.remove(0);
+        RITQTNode root = null;
 
-        if(val == -1)
-            return new RITQTNode(val, parse(values), parse(values), parse(values), parse(values));
-        else
-            return new RITQTNode(val);
+        try
+        {
+            root = RITQTNode.parse(values);
+        }
+        //Error Check: Quadtree value isn't in range 0-255
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            System.out.println("Quadtree is missing values!");
+            System.exit(-1);
+        }
+
+        return root;
     }
 
     /**
      * Given a compressed quadtree file,
-     * converts file into a list of values.
+     * converts file into an array of values.
      *
-     * @param file Scanner containing file to read from
-     * @return list containing each pixel file
+     * @param file TokenReader containing file to read from
+     * @return array containing each quadtree value
      */
-    public static ArrayList<Integer> readFile(Scanner file)
+    public static int[] readFile(TokenReader file)
     {
-        ArrayList<Integer> tokens = new ArrayList<Integer>();
+        int[] tokens = null;
 
-        //Adds each quadtree value to arraylist
+        //Reads every quadtree value into an array
         try
         {
-            while(file.hasNext())
-            {
-                int val = Integer.parseInt(file.next());
-                tokens.add(val);
-
-                //Error Check: Quadtree value isn't in range 0-255
-                if(val != -1 && (val < 0 || val > 255))
-                {
-                    System.out.println("Quadtree contains invalid pixel value! (Valid pixel value: 0-255)");
-                    System.exit(-1);
-                }
-            }
+            tokens = checkTokens(file.readAll());
         }
         //Error Check: Image file contains non-int value
         catch(NumberFormatException e)
@@ -66,6 +93,170 @@ public class RITUncompress
         return tokens;
     }
 
+    /**
+     * Checks that every quadtree value is a split or a pixel value.
+     *
+     * @param tokens the quadtree values
+     * @return the same values
+     */
+    public static int[] checkTokens(int[] tokens)
+    {
+        try
+        {
+            for(int val : tokens)
+                RITQTNode.checkValue(val);
+        }
+        //Error Check: Quadtree value isn't in range 0-255
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Given a Huffman coded file, reads its side length and quadtree values.
+     *
+     * @param file the Huffman coded file to read from
+     * @return the file's side length and quadtree values
+     */
+    public static RITHFile readHuffmanFile(File file)
+    {
+        RITHFile contents = null;
+
+        try
+        {
+            contents = RITHFile.read(file);
+        }
+        //Error Check: The provided file isn't a valid Huffman coded file
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+
+        return contents;
+    }
+
+    /**
+     * Given a .ritr token stream positioned after the size header,
+     * creates the quadtree its residuals describe.
+     *
+     * @param input the token stream to read from
+     * @return the root of the quadtree
+     */
+    public static RITQTNode readPredictive(TokenReader input)
+    {
+        int[] tokens = null;
+
+        try
+        {
+            tokens = input.readAll();
+        }
+        //Error Check: Image file contains non-int value
+        catch(NumberFormatException e)
+        {
+            System.out.println("Image file contains a non-integer!");
+            System.exit(-1);
+        }
+
+        return parsePredictive(tokens);
+    }
+
+    /**
+     * Given the predictive values of a quadtree, creates the quadtree.
+     *
+     * @param tokens the residuals in preorder
+     * @return the root of the quadtree
+     */
+    public static RITQTNode parsePredictive(int[] tokens)
+    {
+        RITQTNode quadtree = null;
+
+        try
+        {
+            quadtree = PredictiveCoder.decode(new TokenCursor(tokens));
+        }
+        //Error Check: Residual or predicted value isn't valid
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            System.out.println("Quadtree is missing values!");
+            System.exit(-1);
+        }
+
+        return quadtree;
+    }
+
+    /**
+     * Checks whether or not a file is Huffman coded, whatever its extension.
+     *
+     * @param file the file to check
+     * @return true if the file starts with the Huffman coded magic
+     */
+    public static boolean isHuffman(File file)
+    {
+        try
+        {
+            return RITHFile.isHuffman(file);
+        }
+        //Error Check: The provided file cannot be found
+        catch(IOException e)
+        {
+            System.out.println("Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        return false;
+    }
+
+    /**
+     * Displays a quadtree, uncompresses it into an image and writes it
+     * to the given file, timing each of the three phases.
+     *
+     * @param timings the conversion's phase timings
+     * @param verbose whether or not to display every value instead of a summary
+     * @param quadtree the quadtree to uncompress
+     * @param summary the quadtree's summary
+     * @param sideLength the side length of the image
+     * @param parallelism number of worker threads, or 0 to uncompress on this thread
+     * @param file the file to write to
+     */
+    static void writeQuadtreeImage(PhaseStats timings, boolean verbose, RITQTNode quadtree, QuadTreeSummary summary,
+                                   int sideLength, int parallelism, File file)
+    {
+        PhaseStats.Phase phase = timings.begin("toString");
+        System.out.println("QTree: " + (verbose ? quadtree.toString() : summary));
+        phase.end(0, 0, 0, summary.getNodeCount());
+
+        long pixelCount = (long) sideLength * sideLength;
+        if(parallelism == 0)
+        {
+            phase = timings.begin("uncompress");
+            int[][] image = quadtree.uncompress(new int[sideLength][sideLength], sideLength);
+            phase.end(0, 0, pixelCount, summary.getNodeCount());
+
+            phase = timings.begin("write");
+            writeImage(image, file);
+        }
+        else
+        {
+            phase = timings.begin("uncompress");
+            byte[] pixels = uncompress(quadtree, sideLength, parallelism);
+            phase.end(0, 0, pixelCount, summary.getNodeCount());
+
+            phase = timings.begin("write");
+            writeImage(pixels, sideLength, file);
+        }
+        phase.end(0, file.length(), pixelCount, 0);
+    }
+
     /**
      * Given an 2D pixel array, writes image to given file.
      *
@@ -101,17 +292,610 @@ public class RITUncompress
         } catch (IOException e) { e.printStackTrace(); }
     }
 
+    /**
+     * Given a row-major pixel buffer, writes image to given file.
+     *
+     * @param pixels the pixels, row by row, one byte each
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     */
+    public static void writeImage(byte[] pixels, int sideLength, File file)
+    {
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Uncompressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Writes image to file
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            writer.writePixels(pixels, 0, pixels.length);
+            writer.close();
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /**
+     * Given a .rit token stream positioned after the size header,
+     * decodes it straight into the given file without building a
+     * quadtree or a full image.
+     *
+     * @param input the token stream to read from
+     * @param sideLength the side length of the image
+     * @param file the file to write to
+     */
+    public static void streamImage(TokenReader input, int sideLength, File file)
+    {
+        try
+        {
+            //Checks whether or not file is already there
+            if(!file.createNewFile())
+            {
+                System.out.println("Uncompressed file already exists!");
+                System.exit(-1);
+            }
+
+            //Writes each band of rows as soon as it is decoded
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(file));
+            StreamingDecoder.decode(input, sideLength,
+                    (band, firstRow, rowCount) -> writer.writePixels(band, 0, rowCount * sideLength));
+            writer.close();
+        }
+        catch(IOException e) { e.printStackTrace(); }
+        //Error Check: Quadtree value isn't valid for this image
+        catch(IllegalArgumentException e)
+        {
+            if(e instanceof NumberFormatException)
+                System.out.println("Image file contains a non-integer!");
+            else
+                System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            System.out.println("Quadtree is missing values!");
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Given a .ritd token stream positioned after the size header,
+     * creates the DAG it describes.
+     *
+     * @param input the token stream to read from
+     * @param sideLength the side length of the image
+     * @return the root of the DAG
+     */
+    public static RITQTNode readShared(TokenReader input, int sideLength)
+    {
+        RITQTNode dag = null;
+
+        try
+        {
+            dag = QuadTreeDag.parse(new TokenCursor(input.readAll()), sideLength);
+        }
+        //Error Check: Quadtree value isn't valid
+        catch(IllegalArgumentException e)
+        {
+            if(e instanceof NumberFormatException)
+                System.out.println("Image file contains a non-integer!");
+            else
+                System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            System.out.println("Quadtree is missing values!");
+            System.exit(-1);
+        }
+
+        return dag;
+    }
+
+    /**
+     * Given a .ritp token stream positioned after the size header,
+     * decodes its level-order quadtree into a pixel buffer.
+     *
+     * @param input the token stream to read from
+     * @param sideLength the side length of the image
+     * @return the pixels, row by row, one byte each
+     */
+    public static byte[] readProgressive(TokenReader input, int sideLength)
+    {
+        byte[] pixels = null;
+
+        try
+        {
+            pixels = ProgressiveDecoder.decode(input, sideLength, null);
+        }
+        //Error Check: Quadtree value isn't valid for this image
+        catch(IllegalArgumentException e)
+        {
+            if(e instanceof NumberFormatException)
+                System.out.println("Image file contains a non-integer!");
+            else
+                System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            System.out.println("Quadtree is missing values!");
+            System.exit(-1);
+        }
+
+        return pixels;
+    }
+
+    /**
+     * Given a binary .ritb file, reads its side length and quadtree.
+     *
+     * @param file the binary file to read from
+     * @return the file's side length and quadtree
+     */
+    public static RITBFile readBinaryFile(File file)
+    {
+        RITBFile contents = null;
+
+        try
+        {
+            contents = RITBFile.read(file);
+        }
+        //Error Check: The provided file cannot be found
+        catch(NoSuchFileException e)
+        {
+            System.out.println("Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        //Error Check: The provided file isn't a valid binary file
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+
+        return contents;
+    }
+
+    /**
+     * Converts a quadtree into a row-major pixel buffer on a fork/join pool.
+     *
+     * @param root the root of the quadtree
+     * @param sideLength the side length of the image
+     * @param parallelism number of worker threads
+     * @return the pixels, row by row, one byte each
+     */
+    public static byte[] uncompress(RITQTNode root, int sideLength, int parallelism)
+    {
+        try(ParallelDecompressor decompressor = new ParallelDecompressor(parallelism, ParallelDecompressor.DEFAULT_CUTOFF))
+        {
+            return decompressor.uncompress(root, sideLength);
+        }
+    }
+
+    /**
+     * Uncompresses a .ritc file into an image file, every channel at
+     * once, or only its green channel as a grayscale image.
+     *
+     * @param timings the conversion's phase timings
+     * @param verbose whether or not each channel's whole quadtree is printed
+     * @param luminance true to write only the green channel, the luminance stand-in
+     * @param input the .ritc file
+     * @param file the file to write to
+     */
+    public static void writeColorImage(PhaseStats timings, boolean verbose, boolean luminance, File input, File file)
+    {
+        try
+        {
+            //Only the green channel's stream is read, the others are skipped
+            if(luminance)
+            {
+                PhaseStats.Phase phase = timings.begin("read");
+                RITBFile contents = RITCFile.readLuminance(input);
+                CompactQuadTree quadtree = contents.getTree();
+                int sideLength = contents.getSideLength();
+                phase.end(0, 0, 0, quadtree.getNodeCount());
+
+                phase = timings.begin("toString");
+                System.out.println("QTree " + RITCFile.getChannelName(0) + ": " + (verbose ? quadtree.toString() : QuadTreeSummary.of(quadtree)));
+                phase.end(0, 0, 0, quadtree.getNodeCount());
+
+                phase = timings.begin("write");
+                writeImage(quadtree.uncompress(new int[sideLength][sideLength], sideLength), file);
+                phase.end(0, file.length(), (long) sideLength * sideLength, quadtree.getNodeCount());
+                return;
+            }
+
+            PhaseStats.Phase phase = timings.begin("read");
+            RITCFile contents = RITCFile.read(input);
+            phase.end(input.length(), 0, 0, contents.getValueCount());
+
+            phase = timings.begin("toString");
+            for(int channel = 0; channel < contents.getChannelCount(); channel++)
+            {
+                CompactQuadTree tree = contents.getChannel(channel);
+                System.out.println("QTree " + RITCFile.getChannelName(channel) + ": " + (verbose ? tree.toString() : QuadTreeSummary.of(tree)));
+            }
+            phase.end(0, 0, 0, contents.getValueCount());
+
+            //Channels are uncompressed at the same time, then recombined into pixels
+            phase = timings.begin("uncompress");
+            byte[] values = contents.uncompress();
+            phase.end(0, 0, values.length, contents.getValueCount());
+
+            phase = timings.begin("write");
+            writeImage(values, contents.getSideLength(), file);
+            phase.end(0, file.length(), values.length, 0);
+        }
+        //Error Check: The provided file cannot be found
+        catch(NoSuchFileException e)
+        {
+            System.out.println("Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        //Error Check: The provided file isn't a valid color file
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Uncompresses a .rit, .ritb, .ritp, .ritd, .ritr or .ritc file, or a Huffman
+     * coded one, into an image file, replacing the output if it exists.
+     * Unlike the single file path, problems are reported by exception
+     * instead of exiting.
+     *
+     * @param input the compressed file, its layout chosen by its extension
+     * @param output the image file to write
+     * @return the image's raw size and its compressed size, in values
+     * @throws IOException if a file cannot be read or written, or the quadtree isn't valid
+     */
+    public static long[] uncompressFile(File input, File output) throws IOException
+    {
+        //Huffman coded files are decoded to their tokens, then to the image
+        if(RITHFile.isHuffman(input))
+        {
+            RITHFile contents = RITHFile.read(input);
+            int sideLength = contents.getSideLength();
+            TokenCursor tokens = new TokenCursor(contents.getTokens());
+            RITQTNode quadtree = RITFormat.forFile(input) == RITFormat.PREDICTIVE ? PredictiveCoder.decode(tokens) : RITQTNode.parse(tokens);
+            int[][] image = quadtree.uncompress(new int[sideLength][sideLength], sideLength);
+            try(QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(output)))
+            {
+                for(int[] row : image)
+                {
+                    for(int pixel : row)
+                        writer.writeToken(pixel);
+                }
+            }
+            return new long[] {(long) sideLength * sideLength, contents.getTokens().length};
+        }
+
+        //Color files are decoded with every channel
+        if(RITFormat.forFile(input) == RITFormat.COLOR)
+        {
+            RITCFile contents = RITCFile.read(input);
+            byte[] values = contents.uncompress();
+            try(QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(output)))
+            {
+                writer.writePixels(values, 0, values.length);
+            }
+            return new long[] {values.length, contents.getValueCount()};
+        }
+
+        //Binary files are decoded from the mapped file
+        if(RITFormat.forFile(input) == RITFormat.BINARY)
+        {
+            RITBFile contents = RITBFile.read(input);
+            int sideLength = contents.getSideLength();
+            int[][] image = contents.getTree().uncompress(new int[sideLength][sideLength], sideLength);
+            try(QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(output)))
+            {
+                for(int[] row : image)
+                {
+                    for(int pixel : row)
+                        writer.writeToken(pixel);
+                }
+            }
+            return new long[] {(long) sideLength * sideLength, contents.getTree().getNodeCount()};
+        }
+
+        try(TokenReader reader = new TokenReader(input);
+            QuadTreeWriter writer = new QuadTreeWriter(new FileOutputStream(output)))
+        {
+            //Error Check: Image is a square
+            int size = reader.nextInt();
+            int sideLength = (int) Math.sqrt(size);
+            if(sideLength * sideLength != size || size <= 0)
+                throw new IOException("Image provided is not a square!");
+
+            //Text files are streamed band by band, other layouts decoded whole
+            if(RITFormat.forFile(input) == RITFormat.SHARED || RITFormat.forFile(input) == RITFormat.PREDICTIVE)
+            {
+                TokenCursor tokens = new TokenCursor(reader.readAll());
+                int[][] image = new int[sideLength][sideLength];
+                if(RITFormat.forFile(input) == RITFormat.SHARED)
+                    QuadTreeDag.uncompress(QuadTreeDag.parse(tokens, sideLength), image, sideLength);
+                else
+                    PredictiveCoder.decode(tokens).uncompress(image, sideLength);
+                for(int[] row : image)
+                {
+                    for(int pixel : row)
+                        writer.writeToken(pixel);
+                }
+            }
+            else if(RITFormat.forFile(input) == RITFormat.PROGRESSIVE)
+                writer.writePixels(ProgressiveDecoder.decode(reader, sideLength, null), 0, size);
+            else
+                StreamingDecoder.decode(reader, sideLength,
+                        (band, firstRow, rowCount) -> writer.writePixels(band, 0, rowCount * sideLength));
+            return new long[] {size, reader.getTokenCount() - 1};
+        }
+        //Error Check: File contains non-int value
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Image file contains a non-integer!");
+        }
+        //Error Check: File ends before the quadtree does
+        catch(NoSuchElementException e)
+        {
+            throw new IOException("Quadtree is missing values!");
+        }
+    }
+
+    /**
+     * Builds the subtree offset index of a .rit file and writes it
+     * to the file's sidecar index file.
+     *
+     * @param file the .rit file, starting with the image size header
+     * @param depth deepest level to index
+     */
+    public static void writeIndex(File file, int depth)
+    {
+        try
+        {
+            RITIndex index = RITIndex.build(file, depth);
+            File sidecar = RITIndex.indexFileFor(file);
+            index.write(sidecar);
+            System.out.println("Index file: " + sidecar.getCanonicalPath());
+            System.out.println("Indexed subtrees: " + index.getEntryCount() + " (depth " + depth + ")");
+        }
+        //Error Check: The provided file cannot be found
+        catch(FileNotFoundException e)
+        {
+            System.out.println("Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        //Error Check: The provided file isn't a valid .rit file
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Decodes a rectangle of a .rit file's image, using its sidecar index
+     * when there is one, and writes the rectangle's pixels row by row.
+     *
+     * @param input the .rit file, starting with the image size header
+     * @param region the rectangle as "row,col,height,width"
+     * @param file the file to write to
+     */
+    public static void writeRegion(File input, String region, File file)
+    {
+        try
+        {
+            String[] bounds = region.split(",");
+            if(bounds.length != 4)
+                throw new NumberFormatException();
+            int[][] pixels = RITIndex.decodeRegion(input, Integer.parseInt(bounds[0].trim()),
+                    Integer.parseInt(bounds[1].trim()), Integer.parseInt(bounds[2].trim()), Integer.parseInt(bounds[3].trim()));
+
+            //Flattens the rectangle for the pixel writer
+            int width = pixels[0].length;
+            byte[] flat = new byte[pixels.length * width];
+            for(int row = 0; row < pixels.length; row++)
+            {
+                for(int col = 0; col < width; col++)
+                    flat[row * width + col] = (byte) pixels[row][col];
+            }
+            writeImage(flat, width, file);
+            System.out.println("Region: " + pixels.length + "x" + width);
+        }
+        //Error Check: Region isn't four integers
+        catch(NumberFormatException e)
+        {
+            System.out.println(USAGE);
+            System.exit(-1);
+        }
+        //Error Check: Region lies outside the image
+        catch(IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        //Error Check: The provided file cannot be found
+        catch(FileNotFoundException e)
+        {
+            System.out.println("Program cannot find the file specified!");
+            System.exit(-1);
+        }
+        //Error Check: The provided file isn't a valid .rit file
+        catch(IOException e)
+        {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+    }
+
     public static void main(String[] args)
     {
-        if (args.length != 2) {
-            System.out.println("Usage: java RITUncompress compressed.rit uncompressed.txt");
+        //Separates options from file arguments
+        int parallelism = 0;
+        boolean stream = false;
+        boolean luminance = false;
+        boolean verbose = false;
+        String stats = null;
+        int indexDepth = -1;
+        String region = null;
+        boolean batch = false;
+        boolean overwrite = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ArrayList<String> files = new ArrayList<String>();
+        for(String arg : args)
+        {
+            if(arg.equals("--batch"))
+                batch = true;
+            else if(arg.equals("--overwrite"))
+                overwrite = true;
+            else if(arg.startsWith("--threads="))
+                threads = RITCompress.intOption(arg, USAGE);
+            else if(arg.equals("--index"))
+                indexDepth = RITIndex.DEFAULT_DEPTH;
+            else if(arg.startsWith("--index="))
+                indexDepth = RITCompress.intOption(arg, 0, USAGE);
+            else if(arg.startsWith("--region="))
+                region = arg.substring("--region=".length());
+            else if(arg.equals("--verbose"))
+                verbose = true;
+            else if(arg.equals("--stats") || arg.equals("--stats=text"))
+                stats = "text";
+            else if(arg.equals("--stats=json"))
+                stats = "json";
+            else if(arg.equals("--stream"))
+                stream = true;
+            else if(arg.equals("--luminance"))
+                luminance = true;
+            else if(arg.equals("--parallel"))
+                parallelism = Runtime.getRuntime().availableProcessors();
+            else if(arg.startsWith("--parallel="))
+                parallelism = RITCompress.intOption(arg, USAGE);
+            else
+                files.add(arg);
+        }
+
+        //Only builds the index of the given file
+        if(indexDepth >= 0 && files.size() == 1)
+        {
+            System.out.println("Indexing: " + files.get(0));
+            writeIndex(new File(files.get(0)), indexDepth);
+            return;
+        }
+
+        if (files.size() != 2 || indexDepth >= 0) {
+            System.out.println(USAGE);
             System.exit(-1);
         }
 
+        //Uncompresses every compressed file of the input directory, one file per task
+        if(batch)
+        {
+            String[] extensions = new String[RITFormat.values().length];
+            for(RITFormat format : RITFormat.values())
+                extensions[format.ordinal()] = format.getExtension();
+            BatchRunner runner = new BatchRunner(new File(files.get(0)), new File(files.get(1)),
+                    extensions, ".txt", overwrite, threads);
+            try
+            {
+                if(runner.run(RITUncompress::uncompressFile) > 0)
+                    System.exit(-1);
+            }
+            catch(IOException e)
+            {
+                System.out.println(e.getMessage());
+                System.exit(-1);
+            }
+            return;
+        }
+
+        //Decodes only the subtrees overlapping the region
+        if(region != null)
+        {
+            System.out.println("Uncompressing: " + files.get(0));
+            File file = new File(files.get(1));
+            writeRegion(new File(files.get(0)), region, file);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            return;
+        }
+
+        //Huffman coded files hold the same values as text ones
+        File file = new File(files.get(1));
+        PhaseStats timings = new PhaseStats("RITUncompress", files.get(0));
+        PhaseStats.Phase phase;
+        if(isHuffman(new File(files.get(0))))
+        {
+            System.out.println("Uncompressing: " + files.get(0));
+            phase = timings.begin("read");
+            RITHFile contents = readHuffmanFile(new File(files.get(0)));
+            phase.end(new File(files.get(0)).length(), 0, contents.getTokens().length, 0);
+
+            phase = timings.begin("parse");
+            RITQTNode quadtree = RITFormat.forFile(new File(files.get(0))) == RITFormat.PREDICTIVE
+                    ? parsePredictive(contents.getTokens())
+                    : parse(new TokenCursor(contents.getTokens()));
+            QuadTreeSummary summary = QuadTreeSummary.of(quadtree);
+            phase.end(0, 0, contents.getTokens().length, summary.getNodeCount());
+
+            writeQuadtreeImage(timings, verbose, quadtree, summary, contents.getSideLength(), parallelism, file);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Color files are decoded channel by channel, or only their luminance
+        if(RITFormat.forFile(new File(files.get(0))) == RITFormat.COLOR)
+        {
+            System.out.println("Uncompressing: " + files.get(0));
+            writeColorImage(timings, verbose, luminance, new File(files.get(0)), file);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Binary files are decoded straight from the mapped file
+        if(RITFormat.forFile(new File(files.get(0))) == RITFormat.BINARY)
+        {
+            System.out.println("Uncompressing: " + files.get(0));
+            phase = timings.begin("read");
+            RITBFile contents = readBinaryFile(new File(files.get(0)));
+            CompactQuadTree quadtree = contents.getTree();
+            int sideLength = contents.getSideLength();
+            phase.end(new File(files.get(0)).length(), 0, 0, quadtree.getNodeCount());
+
+            phase = timings.begin("toString");
+            System.out.println("QTree: " + (verbose ? quadtree.toString() : QuadTreeSummary.of(quadtree)));
+            phase.end(0, 0, 0, quadtree.getNodeCount());
+
+            phase = timings.begin("write");
+            if(parallelism == 0)
+                writeImage(quadtree.uncompress(new int[sideLength][sideLength], sideLength), file);
+            else
+                writeImage(uncompress(quadtree.toNode(), sideLength, parallelism), sideLength, file);
+            phase.end(0, file.length(), (long) sideLength * sideLength, quadtree.getNodeCount());
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
         //Creates file reader
-        Scanner input = null;
+        TokenReader input = null;
         try{
-            input = new Scanner(new File(args[0]));
+            input = new TokenReader(new File(files.get(0)));
         }
         //Error Check: The provided file cannot be found
         catch(FileNotFoundException e)
@@ -121,7 +905,7 @@ public class RITUncompress
         }
 
         //Begins reading file
-        System.out.println("Uncompressing: " + args[0]);
+        System.out.println("Uncompressing: " + files.get(0));
 
         //Error Check: Image is a square
         double tempSideLength = Math.sqrt(input.nextInt());
@@ -132,22 +916,92 @@ public class RITUncompress
             System.exit(-1);
         }
 
-        //Reads and store file data
-        ArrayList<Integer> tokens = readFile(input);
+        //Predictive files are turned back into a quadtree from their residuals
+        if(RITFormat.forFile(new File(files.get(0))) == RITFormat.PREDICTIVE)
+        {
+            phase = timings.begin("read");
+            RITQTNode quadtree = readPredictive(input);
+            input.close();
+            QuadTreeSummary summary = QuadTreeSummary.of(quadtree);
+            phase.end(input.position(), 0, input.getTokenCount(), summary.getNodeCount());
 
-        //Converts arraylist into a quadtree structure and displays quadtree
-        RITQTNode quadtree = parse(tokens);
-        System.out.println("QTree: " + quadtree);
+            writeQuadtreeImage(timings, verbose, quadtree, summary, sideLength, parallelism, file);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Shared files become a DAG, each repeated block filled once and copied
+        if(RITFormat.forFile(new File(files.get(0))) == RITFormat.SHARED)
+        {
+            phase = timings.begin("read");
+            RITQTNode dag = readShared(input, sideLength);
+            input.close();
+            int distinct = QuadTreeDag.countNodes(dag);
+            phase.end(input.position(), 0, input.getTokenCount(), distinct);
+            System.out.println("Distinct nodes: " + distinct);
+
+            phase = timings.begin("write");
+            writeImage(QuadTreeDag.uncompress(dag, new int[sideLength][sideLength], sideLength), file);
+            phase.end(0, file.length(), (long) sideLength * sideLength, distinct);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Level-order files are decoded coarse to fine into a pixel buffer
+        if(RITFormat.forFile(new File(files.get(0))) == RITFormat.PROGRESSIVE)
+        {
+            phase = timings.begin("read");
+            byte[] pixels = readProgressive(input, sideLength);
+            input.close();
+            phase.end(input.position(), 0, input.getTokenCount(), input.getTokenCount() - 1);
+
+            phase = timings.begin("write");
+            writeImage(pixels, sideLength, file);
+            phase.end(0, file.length(), pixels.length, 0);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Decodes straight from the token stream to the output file
+        if(stream)
+        {
+            phase = timings.begin("stream");
+            streamImage(input, sideLength, file);
+            input.close();
+            phase.end(input.position(), file.length(), input.getTokenCount(), input.getTokenCount() - 1);
+            try{
+                System.out.println("Outgput file: " + file.getCanonicalPath());
+            } catch(IOException e) { e.printStackTrace(); }
+            RITCompress.printStats(timings, stats);
+            return;
+        }
+
+        //Reads and store file data
+        phase = timings.begin("read");
+        int[] tokens = readFile(input);
+        input.close();
+        phase.end(input.position(), 0, tokens.length + 1, 0);
 
-        //Uncompress quadtree into 2D image array and prints it out
-        int[][] image = new int[sideLength][sideLength];
-        image = quadtree.uncompress(image, sideLength);
+        //Converts token array into a quadtree structure
+        phase = timings.begin("parse");
+        RITQTNode quadtree = parse(new TokenCursor(tokens));
+        QuadTreeSummary summary = QuadTreeSummary.of(quadtree);
+        phase.end(0, 0, tokens.length, summary.getNodeCount());
 
-        //Pixel array is written to file
-        File file = new File(args[1]);
-        writeImage(image, file);
+        //Displays quadtree, then uncompresses it into an image, written to file
+        writeQuadtreeImage(timings, verbose, quadtree, summary, sideLength, parallelism, file);
         try{
             System.out.println("Outgput file: " + file.getCanonicalPath());
         } catch(IOException e) { e.printStackTrace(); }
+        RITCompress.printStats(timings, stats);
     }
-}
\ No newline at end of file
+}